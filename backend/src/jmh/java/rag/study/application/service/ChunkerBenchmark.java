@@ -0,0 +1,104 @@
+package rag.study.application.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old substring-based splitter with {@link TextChunker}. Run with
+ * {@code ./mvnw -Pjmh test-compile exec:exec}; the gc profiler reports bytes
+ * allocated per operation next to throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ChunkerBenchmark {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int CHUNK_OVERLAP = 50;
+
+    @Param({"10000", "1000000"})
+    int length;
+
+    private String text;
+    private TextChunker chunker;
+
+    @Setup
+    public void setUp() {
+        // Word-like text with the occasional newline, similar to Tika output
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int wordLength = 2 + random.nextInt(9);
+            for (int i = 0; i < wordLength; i++) {
+                sb.append((char) ('a' + random.nextInt(26)));
+            }
+            sb.append(random.nextInt(12) == 0 ? '\n' : ' ');
+        }
+        text = sb.substring(0, length);
+        chunker = new TextChunker(CHUNK_SIZE, CHUNK_OVERLAP);
+    }
+
+    @Benchmark
+    public List<String> legacySplit() {
+        return legacySplitIntoChunks(text);
+    }
+
+    @Benchmark
+    public void offsetSpans(Blackhole blackhole) {
+        chunker.chunk(text, 0, true, (source, start, end) -> {
+            blackhole.consume(start);
+            blackhole.consume(end);
+        });
+    }
+
+    @Benchmark
+    public void offsetSpansMaterialized(Blackhole blackhole) {
+        chunker.chunk(text, 0, true, (source, start, end) ->
+            blackhole.consume(source.subSequence(start, end).toString()));
+    }
+
+    // VectorStoreService.splitIntoChunks as it was before streaming extraction,
+    // including the shrinking tail chunks it emitted at the end of every input
+    private static List<String> legacySplitIntoChunks(String content) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+
+        while (start < content.length()) {
+            int end = Math.min(start + CHUNK_SIZE, content.length());
+
+            if (end < content.length()) {
+                int lastSpace = content.lastIndexOf(' ', end);
+                if (lastSpace > start) {
+                    end = lastSpace;
+                }
+            }
+
+            String chunk = content.substring(start, end).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+
+            start = Math.max(end - CHUNK_OVERLAP, start + 1);
+        }
+
+        return chunks;
+    }
+}
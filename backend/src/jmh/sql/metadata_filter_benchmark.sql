@@ -0,0 +1,100 @@
+-- Filtered search over chunk metadata: JSON as in V1 against JSONB with the
+-- jsonb_path_ops GIN index from V9. Loads the same synthetic chunks into two scratch
+-- tables and prints EXPLAIN ANALYZE timings for each filter on both. Run it against a
+-- scratch database, not the application's:
+--
+--   psql -d studybuddy_bench -v rows=1000000 -v dims=1536 -f src/jmh/sql/metadata_filter_benchmark.sql
+--
+-- Generating a million 1536-dimension vectors and their HNSW indexes takes a while;
+-- dims=256 gives the same filter comparison much faster.
+
+\if :{?rows}
+\else
+\set rows 1000000
+\endif
+\if :{?dims}
+\else
+\set dims 1536
+\endif
+
+\set ON_ERROR_STOP on
+\timing on
+
+CREATE EXTENSION IF NOT EXISTS vector;
+
+DROP TABLE IF EXISTS bench_vector_store_json;
+DROP TABLE IF EXISTS bench_vector_store_jsonb;
+
+CREATE TABLE bench_vector_store_json (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    content TEXT,
+    metadata JSON,
+    embedding vector(:dims)
+);
+
+-- Same metadata ingestion writes, 200 chunks (50 pages) per document
+INSERT INTO bench_vector_store_json (content, metadata, embedding)
+SELECT 'chunk ' || i,
+       json_build_object(
+           'document_id', i / 200,
+           'filename', 'document-' || (i / 200) || '.pdf',
+           'chunk_index', i % 200,
+           'token_count', 120,
+           'page_start', (i % 200) / 4 + 1,
+           'page_end', (i % 200) / 4 + 1),
+       -- Correlated on i so every row gets its own vector
+       (SELECT array_agg(random()::real) FROM generate_series(1, :dims) WHERE i IS NOT NULL)::vector
+FROM generate_series(1, :rows) AS i;
+
+CREATE TABLE bench_vector_store_jsonb (
+    id UUID PRIMARY KEY,
+    content TEXT,
+    metadata JSONB,
+    embedding vector(:dims)
+);
+
+INSERT INTO bench_vector_store_jsonb
+SELECT id, content, metadata::jsonb, embedding FROM bench_vector_store_json;
+
+CREATE INDEX ON bench_vector_store_json USING hnsw (embedding vector_cosine_ops);
+CREATE INDEX ON bench_vector_store_jsonb USING hnsw (embedding vector_cosine_ops);
+CREATE INDEX ON bench_vector_store_jsonb USING gin (metadata jsonb_path_ops);
+
+VACUUM ANALYZE bench_vector_store_json;
+VACUUM ANALYZE bench_vector_store_jsonb;
+
+SELECT embedding AS query_vector FROM bench_vector_store_json ORDER BY id LIMIT 1 \gset
+
+-- 1. Spring AI filter expression (filename == '...'), which PgVectorStore turns into jsonpath
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id FROM bench_vector_store_json
+WHERE metadata::jsonb @@ '$.filename == "document-2500.pdf"';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id FROM bench_vector_store_jsonb
+WHERE metadata @@ '$.filename == "document-2500.pdf"';
+
+-- 2. Containment on document_id
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id FROM bench_vector_store_json
+WHERE metadata::jsonb @> '{"document_id": 2500}';
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id FROM bench_vector_store_jsonb
+WHERE metadata @> '{"document_id": 2500}';
+
+-- 3. Similarity search restricted to one document, in VectorStoreService's query shape
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, content, metadata::text, embedding <=> :'query_vector' AS distance
+FROM bench_vector_store_json
+WHERE metadata::jsonb @@ '$.document_id == 2500'
+ORDER BY distance LIMIT 5;
+
+EXPLAIN (ANALYZE, BUFFERS)
+SELECT id, content, metadata::text, embedding <=> :'query_vector' AS distance
+FROM bench_vector_store_jsonb
+WHERE metadata @@ '$.document_id == 2500'
+ORDER BY distance LIMIT 5;
+
+DROP TABLE bench_vector_store_json;
+DROP TABLE bench_vector_store_jsonb;
@@ -0,0 +1,26 @@
+package rag.study.application.config;
+
+import org.apache.tika.Tika;
+import org.apache.tika.config.TikaConfig;
+import org.apache.tika.exception.TikaException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Configuration
+public class TikaConfiguration {
+
+    // Registers only the parsers for the file types we accept, instead of every parser on the classpath
+    @Bean
+    public Tika tika(@Value("${extraction.tika.config:classpath:tika-config.xml}") Resource config)
+            throws IOException, TikaException, SAXException {
+        try (InputStream inputStream = config.getInputStream()) {
+            return new Tika(new TikaConfig(inputStream));
+        }
+    }
+}
@@ -2,14 +2,26 @@ package rag.study.application.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.chat.metadata.Usage;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import rag.study.application.dto.ChatRequest;
 import rag.study.application.dto.ChatResponse;
+import rag.study.application.dto.ChatStreamSummary;
 import rag.study.application.service.RAGQueryService;
+import rag.study.application.service.RagResult;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @RestController
 @RequestMapping("/api/chat")
@@ -20,6 +32,8 @@ public class ChatController {
 
     private final RAGQueryService ragQueryService;
 
+    private static final long STREAM_TIMEOUT_MS = 120_000;
+
     @PostMapping("/query")
     public ResponseEntity<ChatResponse> query(@RequestBody ChatRequest request) {
         log.info("Received chat query: {}", request.getQuestion());
@@ -35,14 +49,11 @@ public class ChatController {
         }
 
         try {
-            // Query documents using RAG
-            String answer = ragQueryService.queryDocuments(request.getQuestion());
-
-            // Get sources for the answer
-            List<String> sources = ragQueryService.getSources(request.getQuestion());
+            // Query documents using RAG (single retrieval pass for answer and sources)
+            RagResult result = ragQueryService.queryDocuments(request.getQuestion());
 
             // Build response
-            ChatResponse response = new ChatResponse(answer, sources);
+            ChatResponse response = new ChatResponse(result.getAnswer(), result.getSources());
 
             log.info("Successfully generated answer for query: {}", request.getQuestion());
             return ResponseEntity.ok(response);
@@ -56,4 +67,90 @@ public class ChatController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(errorResponse);
         }
     }
+
+    @PostMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream(@RequestBody ChatRequest request) {
+        log.info("Received streaming chat query: {}", request.getQuestion());
+
+        // Validate request
+        if (request.getQuestion() == null || request.getQuestion().trim().isEmpty()) {
+            log.warn("Empty question received");
+            return ResponseEntity.badRequest().build();
+        }
+
+        String question = request.getQuestion();
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        long startedAt = System.currentTimeMillis();
+        AtomicReference<Usage> usage = new AtomicReference<>();
+
+        // Retrieval blocks on the embedding call and pgvector, so keep it off the request thread
+        Disposable subscription = Mono.fromCallable(() -> ragQueryService.lookupCachedAnswer(question)
+                .orElseGet(() -> ragQueryService.retrieve(question)))
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMapMany(retrieval -> {
+                // Sources are known as soon as retrieval finishes
+                sendEvent(emitter, "sources", retrieval.getSources());
+                return ragQueryService.streamAnswer(retrieval);
+            })
+            .subscribe(
+                chunk -> {
+                    String text = chunk.getResult() != null ? chunk.getResult().getOutput().getText() : null;
+                    if (text != null && !text.isEmpty()) {
+                        sendEvent(emitter, "token", Map.of("text", text));
+                    }
+                    Usage chunkUsage = chunk.getMetadata().getUsage();
+                    if (chunkUsage != null && chunkUsage.getTotalTokens() != null && chunkUsage.getTotalTokens() > 0) {
+                        usage.set(chunkUsage);
+                    }
+                },
+                error -> {
+                    log.error("Failed to stream chat query", error);
+                    try {
+                        sendEvent(emitter, "error", Map.of("message",
+                            "An error occurred while processing your question. Please try again."));
+                        emitter.complete();
+                    } catch (Exception e) {
+                        emitter.completeWithError(error);
+                    }
+                },
+                () -> {
+                    Usage finalUsage = usage.get();
+                    sendEvent(emitter, "done", new ChatStreamSummary(
+                        finalUsage != null ? finalUsage.getPromptTokens() : null,
+                        finalUsage != null ? finalUsage.getCompletionTokens() : null,
+                        finalUsage != null ? finalUsage.getTotalTokens() : null,
+                        System.currentTimeMillis() - startedAt
+                    ));
+                    emitter.complete();
+                    log.info("Successfully streamed answer for query: {}", question);
+                }
+            );
+
+        // Stop generating if the client goes away or the stream times out
+        emitter.onCompletion(subscription::dispose);
+        emitter.onTimeout(() -> {
+            subscription.dispose();
+            log.warn("Chat stream timed out for query: {}", question);
+            // Give the client a terminal event instead of leaving the stream hanging
+            try {
+                sendEvent(emitter, "error", Map.of("message",
+                    "The answer took too long to generate. Please try again."));
+                emitter.complete();
+            } catch (Exception e) {
+                emitter.completeWithError(e);
+            }
+        });
+        emitter.onError(error -> subscription.dispose());
+
+        return ResponseEntity.ok(emitter);
+    }
+
+    private void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // Client disconnected; surfacing this cancels the upstream stream
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -7,10 +7,15 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import rag.study.application.dto.DocumentUploadResponse;
+import rag.study.application.dto.IngestionJobResponse;
 import rag.study.application.model.Document;
+import rag.study.application.model.IngestionJob;
+import rag.study.application.model.IngestionStatus;
 import rag.study.application.service.DocumentProcessingService;
+import rag.study.application.service.IngestionService;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api/documents")
@@ -20,32 +25,50 @@ import java.util.List;
 public class FileUploadController {
 
     private final DocumentProcessingService documentProcessingService;
+    private final IngestionService ingestionService;
 
     @PostMapping("/upload")
     public ResponseEntity<DocumentUploadResponse> uploadDocument(@RequestParam("file") MultipartFile file) {
         log.info("Received upload request for file: {}", file.getOriginalFilename());
 
         try {
-            // Process the document
-            Document savedDocument = documentProcessingService.processDocument(file);
+            // Validate and spool the file, then hand it to the ingestion pipeline
+            IngestionJob job = ingestionService.submit(file);
+
+            if (job.getStatus() == IngestionStatus.COMPLETED) {
+                // Identical file was uploaded before; its text and embeddings were reused
+                DocumentUploadResponse response = new DocumentUploadResponse(
+                    job.getDocumentId(),
+                    job.getId(),
+                    job.getFilename(),
+                    job.getFileType(),
+                    job.getFileSize(),
+                    "success",
+                    "File uploaded successfully (identical to a previously processed file)"
+                );
+                log.info("Reused existing content for document: {} with ID: {}", job.getFilename(), job.getDocumentId());
+                return ResponseEntity.ok(response);
+            }
 
             // Build response DTO
             DocumentUploadResponse response = new DocumentUploadResponse(
-                savedDocument.getId(),
-                savedDocument.getFilename(),
-                savedDocument.getFileType(),
-                savedDocument.getFileSize(),
-                "success",
-                "File uploaded and processed successfully"
+                null,
+                job.getId(),
+                job.getFilename(),
+                job.getFileType(),
+                job.getFileSize(),
+                "queued",
+                "File uploaded and queued for processing"
             );
 
-            log.info("Successfully processed document: {} with ID: {}", savedDocument.getFilename(), savedDocument.getId());
-            return ResponseEntity.ok(response);
+            log.info("Queued document: {} as ingestion job: {}", job.getFilename(), job.getId());
+            return ResponseEntity.accepted().body(response);
 
         } catch (IllegalArgumentException e) {
             // Validation errors (bad file type, size, etc.)
             log.warn("Validation failed for file upload: {}", e.getMessage());
             DocumentUploadResponse errorResponse = new DocumentUploadResponse(
+                null,
                 null,
                 file.getOriginalFilename(),
                 null,
@@ -55,10 +78,25 @@ public class FileUploadController {
             );
             return ResponseEntity.badRequest().body(errorResponse);
 
+        } catch (RejectedExecutionException e) {
+            // Ingestion pipeline is saturated
+            log.warn("Ingestion queue full, rejecting upload: {}", file.getOriginalFilename());
+            DocumentUploadResponse errorResponse = new DocumentUploadResponse(
+                null,
+                null,
+                file.getOriginalFilename(),
+                null,
+                file.getSize(),
+                "error",
+                "Too many documents are being processed right now. Please try again shortly."
+            );
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(errorResponse);
+
         } catch (Exception e) {
             // Unexpected errors
             log.error("Failed to process document upload", e);
             DocumentUploadResponse errorResponse = new DocumentUploadResponse(
+                null,
                 null,
                 file.getOriginalFilename(),
                 null,
@@ -70,6 +108,25 @@ public class FileUploadController {
         }
     }
 
+    @GetMapping("/jobs/{jobId}")
+    public ResponseEntity<IngestionJobResponse> getJobStatus(@PathVariable Long jobId) {
+        return ingestionService.getJob(jobId)
+            .map(job -> ResponseEntity.ok(new IngestionJobResponse(
+                job.getId(),
+                job.getDocumentId(),
+                job.getFilename(),
+                job.getStatus().name(),
+                job.getTotalChunks(),
+                job.getStoredChunks(),
+                job.getIndexedChunks(),
+                job.getIndexedThroughSection(),
+                job.getErrorMessage(),
+                job.getCreatedAt(),
+                job.getCompletedAt()
+            )))
+            .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
     @GetMapping
     public ResponseEntity<List<Document>> getAllDocuments() {
         log.info("Fetching all documents");
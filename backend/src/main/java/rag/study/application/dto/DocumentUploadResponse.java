@@ -10,6 +10,7 @@ import lombok.NoArgsConstructor;
 public class DocumentUploadResponse {
 
     private Long id;
+    private Long jobId;
     private String filename;
     private String fileType;
     private Long fileSize;
@@ -0,0 +1,25 @@
+package rag.study.application.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJobResponse {
+
+    private Long jobId;
+    private Long documentId;
+    private String filename;
+    private String status;
+    private Integer totalChunks;
+    private Integer storedChunks;
+    private Integer indexedChunks;
+    private Integer indexedThroughSection;
+    private String errorMessage;
+    private LocalDateTime createdAt;
+    private LocalDateTime completedAt;
+}
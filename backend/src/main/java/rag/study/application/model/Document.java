@@ -35,6 +35,12 @@ public class Document {
     @Column(name = "content_text", columnDefinition = "TEXT")
     private String contentText;
 
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "canonical_document_id")
+    private Long canonicalDocumentId;
+
     @Column(columnDefinition = "jsonb")
     @JdbcTypeCode(SqlTypes.JSON)
     private String metadata;
@@ -0,0 +1,77 @@
+package rag.study.application.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Entity
+@Table(name = "ingestion_jobs")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class IngestionJob {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private String filename;
+
+    @Column(name = "file_type", nullable = false)
+    private String fileType;
+
+    @Column(name = "file_size", nullable = false)
+    private Long fileSize;
+
+    // SHA-256 of the uploaded bytes, recorded when the upload is accepted
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private IngestionStatus status;
+
+    @Column(name = "document_id")
+    private Long documentId;
+
+    @Column(name = "total_chunks")
+    private Integer totalChunks;
+
+    @Column(name = "stored_chunks", nullable = false)
+    private Integer storedChunks = 0;
+
+    // High-water mark: chunks 0 to indexedChunks - 1 are all stored and searchable
+    @Column(name = "indexed_chunks", nullable = false)
+    private Integer indexedChunks = 0;
+
+    // Last page (PDFs) or slide (decks) covered by those chunks
+    @Column(name = "indexed_through_section")
+    private Integer indexedThroughSection;
+
+    @Column(name = "error_message", columnDefinition = "TEXT")
+    private String errorMessage;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
+    }
+}
@@ -0,0 +1,15 @@
+package rag.study.application.model;
+
+public enum IngestionStatus {
+    QUEUED,
+    EXTRACTING,
+    EMBEDDING,
+    // Some leading chunks are searchable while the rest are still being processed
+    PARTIALLY_INDEXED,
+    COMPLETED,
+    FAILED;
+
+    public boolean isTerminal() {
+        return this == COMPLETED || this == FAILED;
+    }
+}
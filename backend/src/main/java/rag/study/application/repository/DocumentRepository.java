@@ -12,7 +12,13 @@ public interface DocumentRepository extends JpaRepository<Document, Long> {
 
     Optional<Document> findByFilename(String filename);
 
+    List<Document> findAllByFilename(String filename);
+
     List<Document> findByFileType(String fileType);
 
     List<Document> findAllByOrderByUploadDateDesc();
+
+    List<Document> findByContentHashAndCanonicalDocumentIdIsNullOrderByIdAsc(String contentHash);
+
+    List<Document> findByCanonicalDocumentIdOrderByIdAsc(Long canonicalDocumentId);
 }
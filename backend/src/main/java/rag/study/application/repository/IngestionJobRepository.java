@@ -0,0 +1,50 @@
+package rag.study.application.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import rag.study.application.model.IngestionJob;
+import rag.study.application.model.IngestionStatus;
+
+import java.util.Collection;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Long> {
+
+    boolean existsByDocumentId(Long documentId);
+
+    boolean existsByDocumentIdAndStatus(Long documentId, IngestionStatus status);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.totalChunks = :totalChunks, "
+        + "j.status = CASE WHEN j.status = :from THEN :status ELSE j.status END WHERE j.id = :id")
+    int updateProgress(@Param("id") Long id, @Param("from") IngestionStatus from,
+                       @Param("status") IngestionStatus status, @Param("totalChunks") int totalChunks);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.storedChunks = j.storedChunks + :count WHERE j.id = :id")
+    int incrementStoredChunks(@Param("id") Long id, @Param("count") int count);
+
+    // Only moves forward, since store batches can report out of order
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.indexedChunks = :indexedChunks, j.indexedThroughSection = :section, "
+        + "j.status = CASE WHEN j.status IN :inProgress THEN :partial ELSE j.status END "
+        + "WHERE j.id = :id AND j.indexedChunks < :indexedChunks")
+    int advanceHighWaterMark(@Param("id") Long id, @Param("indexedChunks") int indexedChunks,
+                             @Param("section") Integer section,
+                             @Param("inProgress") Collection<IngestionStatus> inProgress,
+                             @Param("partial") IngestionStatus partial);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IngestionJob j SET j.status = :failed, j.errorMessage = :message WHERE j.status NOT IN :terminal")
+    int failUnfinishedJobs(@Param("failed") IngestionStatus failed,
+                           @Param("terminal") Collection<IngestionStatus> terminal,
+                           @Param("message") String message);
+}
@@ -0,0 +1,54 @@
+package rag.study.application.service;
+
+/**
+ * AIMD concurrency limit: grows by roughly one slot per window of successful calls
+ * and is cut multiplicatively when the provider answers with HTTP 429.
+ */
+class AdaptiveConcurrencyLimiter {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double backoffRatio;
+
+    private double limit;
+    private int inFlight;
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, double backoffRatio) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.backoffRatio = backoffRatio;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    synchronized void acquire() throws InterruptedException {
+        while (inFlight >= (int) limit) {
+            wait();
+        }
+        inFlight++;
+    }
+
+    // Callers release exactly once per acquire, whatever the outcome; only successes and
+    // rate limiting move the limit, since other errors say nothing about load
+    synchronized void release() {
+        inFlight--;
+        notifyAll();
+    }
+
+    synchronized void onSuccess() {
+        // Additive increase: +1 after a full window's worth of successes
+        limit = Math.min(maxLimit, limit + 1.0 / limit);
+    }
+
+    synchronized void onRateLimited() {
+        // Multiplicative decrease
+        limit = Math.max(minLimit, limit * backoffRatio);
+    }
+
+    synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    synchronized int getInFlight() {
+        return inFlight;
+    }
+}
@@ -0,0 +1,46 @@
+package rag.study.application.service;
+
+/**
+ * Cuts text into chunks, reporting each one as a span of the source rather than a
+ * copy. Implementations may keep scan progress for the chunk in progress between
+ * calls, so an instance serves a single stream of text.
+ */
+public interface Chunker {
+
+    @FunctionalInterface
+    interface SpanConsumer {
+        void accept(CharSequence source, int start, int end);
+    }
+
+    /**
+     * Emits the trimmed, non-empty chunk spans of {@code text} starting at {@code start}
+     * and returns where the next chunk would start. Unless {@code endOfInput} is set,
+     * only chunks followed by more text are emitted, since the word boundary of the
+     * last window isn't known until more text arrives.
+     */
+    int chunk(CharSequence text, int start, boolean endOfInput, SpanConsumer consumer);
+
+    /**
+     * Whether chunks should end at section boundaries (slides, pages). If so, the text
+     * of each section is passed with {@code endOfInput} set when the section ends.
+     */
+    default boolean chunksPerSection() {
+        return false;
+    }
+
+    /**
+     * Hands {@code [start, end)} to the consumer without leading and trailing whitespace,
+     * unless nothing else is left.
+     */
+    static void emitTrimmed(CharSequence text, int start, int end, SpanConsumer consumer) {
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start < end) {
+            consumer.accept(text, start, end);
+        }
+    }
+}
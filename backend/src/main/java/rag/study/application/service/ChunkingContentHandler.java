@@ -0,0 +1,154 @@
+package rag.study.application.service;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/**
+ * SAX handler that cuts Tika's text output into overlapping chunks while the document
+ * is still being parsed. Only the current window is kept in memory, so heap use per
+ * upload is bounded by the chunk size rather than the document size. How chunks are
+ * measured is up to the {@link Chunker}.
+ * <p>
+ * Pages and slides are counted from Tika's {@code <div class="page">} and
+ * {@code <div class="slide-content">} elements, so each chunk knows the ones it spans.
+ */
+public class ChunkingContentHandler extends DefaultHandler {
+
+    private final Chunker chunker;
+    private final Consumer<Chunk> onChunk;
+    private final Chunker.SpanConsumer emit = this::emit;
+
+    private final StringBuilder window = new StringBuilder();
+    private long windowOffset;
+    private int start;
+    private int chunkCount;
+    private long characterCount;
+    private boolean finished;
+
+    // Where each page or slide starts in the text seen so far; only those the window can still reach are kept
+    private final Deque<SectionMark> sectionMarks = new ArrayDeque<>();
+    private String sectionType;
+    private int sectionCount;
+
+    /**
+     * A chunk of text with the pages or slides it starts and ends on. The section type
+     * is "page" or "slide", and all three are null when the document has neither.
+     */
+    public record Chunk(String text, String sectionType, Integer firstSection, Integer lastSection) { }
+
+    private record SectionMark(long offset, int number) { }
+
+    ChunkingContentHandler(Chunker chunker, Consumer<Chunk> onChunk) {
+        this.chunker = chunker;
+        this.onChunk = onChunk;
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes atts) {
+        // Tika wraps each slide and PDF page in a div; a new one ends the previous section
+        if (!"div".equals(localName)) {
+            return;
+        }
+        String cssClass = atts.getValue("class");
+        String type = "page".equals(cssClass) ? "page" : "slide-content".equals(cssClass) ? "slide" : null;
+        if (type == null) {
+            return;
+        }
+        if (chunker.chunksPerSection()) {
+            flush();
+        }
+        sectionType = type;
+        sectionMarks.addLast(new SectionMark(windowOffset + window.length(), ++sectionCount));
+    }
+
+    @Override
+    public void characters(char[] ch, int offset, int length) {
+        append(ch, offset, length);
+    }
+
+    @Override
+    public void ignorableWhitespace(char[] ch, int offset, int length) {
+        append(ch, offset, length);
+    }
+
+    /**
+     * Emits whatever is left in the window. Safe to call more than once.
+     */
+    public void finish() {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        flush();
+    }
+
+    public int getChunkCount() {
+        return chunkCount;
+    }
+
+    public long getCharacterCount() {
+        return characterCount;
+    }
+
+    public int getSectionCount() {
+        return sectionCount;
+    }
+
+    private void append(char[] ch, int offset, int length) {
+        window.append(ch, offset, length);
+        characterCount += length;
+
+        start = chunker.chunk(window, start, false, emit);
+
+        // Drop text no future chunk can reach, once it outweighs what is still pending
+        if (start > 0 && start >= window.length() - start) {
+            window.delete(0, start);
+            windowOffset += start;
+            start = 0;
+        }
+        pruneSectionMarks();
+    }
+
+    private void flush() {
+        chunker.chunk(window, start, true, emit);
+        windowOffset += window.length();
+        window.setLength(0);
+        start = 0;
+        pruneSectionMarks();
+    }
+
+    private void emit(CharSequence source, int spanStart, int spanEnd) {
+        // The only allocation per chunk: the String handed on to embedding
+        Integer firstSection = sectionAt(windowOffset + spanStart);
+        onChunk.accept(new Chunk(window.substring(spanStart, spanEnd), firstSection == null ? null : sectionType,
+            firstSection, sectionAt(windowOffset + spanEnd - 1)));
+        chunkCount++;
+    }
+
+    private Integer sectionAt(long offset) {
+        Integer section = null;
+        for (SectionMark mark : sectionMarks) {
+            if (mark.offset() > offset) {
+                break;
+            }
+            section = mark.number();
+        }
+        return section;
+    }
+
+    // Keep the last section starting at or before the earliest offset a future chunk can begin at
+    private void pruneSectionMarks() {
+        long earliest = windowOffset + start;
+        while (sectionMarks.size() > 1) {
+            SectionMark first = sectionMarks.pollFirst();
+            if (sectionMarks.peekFirst().offset() > earliest) {
+                sectionMarks.addFirst(first);
+                break;
+            }
+        }
+    }
+}
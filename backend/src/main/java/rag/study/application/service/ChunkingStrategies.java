@@ -0,0 +1,54 @@
+package rag.study.application.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Picks the chunking strategy for a file type from {@code chunking.strategy.<type>},
+ * falling back to {@code chunking.strategy.default}.
+ */
+@Component
+@Slf4j
+public class ChunkingStrategies {
+
+    private static final String PROPERTY_PREFIX = "chunking.strategy.";
+
+    private final Map<String, ChunkingStrategy> strategies;
+    private final Environment environment;
+    private final String defaultStrategy;
+
+    public ChunkingStrategies(List<ChunkingStrategy> strategies,
+                              Environment environment,
+                              @Value("${chunking.strategy.default:fixed}") String defaultStrategy) {
+        this.strategies = strategies.stream()
+            .collect(Collectors.toUnmodifiableMap(ChunkingStrategy::getName, Function.identity()));
+        this.environment = environment;
+        this.defaultStrategy = defaultStrategy;
+        get(defaultStrategy);
+        log.info("Chunking strategies available: {}, default: {}", this.strategies.keySet(), defaultStrategy);
+    }
+
+    public ChunkingStrategy forFileType(String fileType) {
+        String name = fileType == null
+            ? defaultStrategy
+            : environment.getProperty(PROPERTY_PREFIX + fileType.toLowerCase(Locale.ROOT), defaultStrategy);
+        return get(name);
+    }
+
+    private ChunkingStrategy get(String name) {
+        ChunkingStrategy strategy = strategies.get(name.trim().toLowerCase(Locale.ROOT));
+        if (strategy == null) {
+            throw new IllegalStateException("Unknown chunking strategy '" + name + "', expected one of "
+                + strategies.keySet());
+        }
+        return strategy;
+    }
+}
@@ -0,0 +1,18 @@
+package rag.study.application.service;
+
+/**
+ * A way of cutting extracted text into chunks. Implementations are Spring beans,
+ * picked per file type by {@link ChunkingStrategies}.
+ */
+public interface ChunkingStrategy {
+
+    /**
+     * Name used to select this strategy in configuration, e.g. {@code chunking.strategy.pptx=slide}.
+     */
+    String getName();
+
+    /**
+     * Creates a chunker for one document.
+     */
+    Chunker newChunker();
+}
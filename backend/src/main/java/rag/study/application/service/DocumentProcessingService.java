@@ -4,13 +4,27 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.tika.Tika;
 import org.apache.tika.exception.TikaException;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
 import rag.study.application.model.Document;
+import rag.study.application.model.IngestionStatus;
 import rag.study.application.repository.DocumentRepository;
+import rag.study.application.repository.IngestionJobRepository;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 @Service
 @RequiredArgsConstructor
@@ -18,57 +32,71 @@ import java.io.InputStream;
 public class DocumentProcessingService {
 
     private final DocumentRepository documentRepository;
+    private final IngestionJobRepository ingestionJobRepository;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final ExtractionExecutor extractionExecutor;
+    private final PdfPageExtractor pdfPageExtractor;
+    private final ImageOcrExtractor imageOcrExtractor;
+    private final PptxSlideExtractor pptxSlideExtractor;
+    private final TikaForkPool tikaForkPool;
     private final VectorStoreService vectorStoreService;
-    private final Tika tika = new Tika();
+    private final TransactionTemplate transactionTemplate;
+    private final Tika tika;
 
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024; // 10MB
     private static final String[] ALLOWED_TYPES = {"pdf", "pptx", "ppt", "jpg", "jpeg", "png"};
+    private static final Set<String> IMAGE_TYPES = Set.of("jpg", "jpeg", "png");
+
+    public Document createDocument(String filename, String fileType, long fileSize, String contentHash) {
+        invalidatePreviousVersions(filename);
+
+        // Create Document entity
+        Document document = new Document();
+        document.setFilename(filename);
+        document.setFileType(fileType);
+        document.setFileSize(fileSize);
+        document.setContentHash(contentHash);
+
+        // Save to database
+        Document savedDocument = documentRepository.save(document);
+        log.info("Saved document to database with ID: {}", savedDocument.getId());
+        return savedDocument;
+    }
 
-    public Document processDocument(MultipartFile file) {
-        log.info("Starting to process document: {}", file.getOriginalFilename());
+    public Optional<Document> findReusableDocument(String contentHash) {
+        // Only reuse documents whose ingestion completed; legacy documents have no job at all.
+        // Uploads still in progress are handled by IngestionService, which holds identical uploads back
+        return documentRepository.findByContentHashAndCanonicalDocumentIdIsNullOrderByIdAsc(contentHash).stream()
+            .filter(document -> !ingestionJobRepository.existsByDocumentId(document.getId())
+                || ingestionJobRepository.existsByDocumentIdAndStatus(document.getId(), IngestionStatus.COMPLETED))
+            .findFirst();
+    }
 
-        // Validate file
-        validateFile(file);
+    public Document createDuplicate(Document canonical, String filename, String fileType, long fileSize) {
+        invalidatePreviousVersions(filename);
 
-        try {
-            // Extract text using Apache Tika
-            String extractedText = extractText(file);
-            log.info("Successfully extracted {} characters from {}", extractedText.length(), file.getOriginalFilename());
-
-            // Create Document entity
-            Document document = new Document();
-            document.setFilename(file.getOriginalFilename());
-            document.setFileType(getFileExtension(file.getOriginalFilename()));
-            document.setFileSize(file.getSize());
-            document.setContentText(extractedText);
-
-            // Save to database
-            Document savedDocument = documentRepository.save(document);
-            log.info("Saved document to database with ID: {}", savedDocument.getId());
-
-            // Create and store embeddings asynchronously
-            // In production, you might want to use @Async for this
-            try {
-                vectorStoreService.storeDocumentEmbeddings(
-                    savedDocument.getId(),
-                    savedDocument.getFilename(),
-                    extractedText
-                );
-            } catch (Exception e) {
-                log.error("Failed to create embeddings for document ID: {}", savedDocument.getId(), e);
-                // We don't fail the whole operation if embeddings fail
-                // The document is still saved, embeddings can be retried
-            }
+        // Shares the canonical document's extracted text and vectors instead of copying them
+        Document document = new Document();
+        document.setFilename(filename);
+        document.setFileType(fileType);
+        document.setFileSize(fileSize);
+        document.setContentHash(canonical.getContentHash());
+        document.setCanonicalDocumentId(canonical.getId());
 
-            return savedDocument;
+        Document savedDocument = documentRepository.save(document);
+        log.info("Saved document ID: {} as duplicate of document ID: {}", savedDocument.getId(), canonical.getId());
+        return savedDocument;
+    }
 
-        } catch (IOException e) {
-            log.error("Failed to process document: {}", file.getOriginalFilename(), e);
-            throw new RuntimeException("Failed to process document: " + e.getMessage(), e);
-        }
+    private void invalidatePreviousVersions(String filename) {
+        // A re-upload replaces what earlier versions said, so drop answers that cited them
+        List<Long> previousVersions = documentRepository.findAllByFilename(filename).stream()
+            .map(Document::getId)
+            .toList();
+        semanticAnswerCache.invalidateDocuments(previousVersions);
     }
 
-    private void validateFile(MultipartFile file) {
+    public void validateFile(MultipartFile file) {
         // Check if file is empty
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Cannot process empty file");
@@ -94,45 +122,116 @@ public class DocumentProcessingService {
         }
     }
 
-    private String extractText(MultipartFile file) throws IOException {
-        try (InputStream inputStream = file.getInputStream()) {
+    public void extractText(Path file, String filename, ContentHandler handler) throws IOException {
+        // Parse on the bounded extraction pool with a per-document time limit;
+        // text goes straight to the handler instead of being collected into one String
+        extractionExecutor.execute(filename, () -> {
+            // In fork mode every format is parsed in a child JVM, so even the PDF and
+            // PPTX readers can't run this JVM out of memory
+            if (tikaForkPool.isEnabled()) {
+                tikaForkPool.parse(file, filename, handler);
+            } else if (!extractDirectly(file, filename, handler)) {
+                parse(file, filename, handler);
+            }
+            return null;
+        });
+    }
+
+    private boolean extractDirectly(Path file, String filename, ContentHandler handler) throws IOException {
+        String extension = getFileExtension(filename);
+        try {
+            // PDFs are read page by page: text layer first, OCR only for pages without one
+            if ("pdf".equals(extension)) {
+                pdfPageExtractor.extract(file, filename, handler);
+                return true;
+            }
+            // Photos are downscaled and cleaned up before OCR
+            if (IMAGE_TYPES.contains(extension)) {
+                return imageOcrExtractor.extract(file, filename, handler);
+            }
+            // Decks are read slide by slide so embedded pictures can be OCR'd alongside
+            if ("pptx".equals(extension)) {
+                return pptxSlideExtractor.extract(file, filename, handler);
+            }
+            return false;
+        } catch (SAXException e) {
+            throw new IOException("Failed to extract text from document", e);
+        }
+    }
+
+    private void parse(Path file, String filename, ContentHandler handler) throws IOException {
+        try (InputStream inputStream = TikaInputStream.get(file)) {
             // Apache Tika automatically detects file type and extracts text
             // For PDFs: extracts text content
             // For PowerPoint: extracts text from slides
             // For Images: uses OCR (Tesseract) to extract text
-            String text = tika.parseToString(inputStream);
-
-            // Clean up extracted text
-            text = text.trim();
-
-            if (text.isEmpty()) {
-                log.warn("No text could be extracted from file: {}", file.getOriginalFilename());
-                throw new RuntimeException("No text content found in the document");
-            }
-
-            return text;
-        } catch (TikaException e) {
-            log.error("Tika failed to parse document: {}", file.getOriginalFilename(), e);
+            Parser parser = tika.getParser();
+            ParseContext context = new ParseContext();
+            context.set(Parser.class, parser);
+
+            // BodyContentHandler drops <head> content such as the title, like parseToString does
+            parser.parse(inputStream, new BodyContentHandler(handler), new Metadata(), context);
+        } catch (TikaException | SAXException e) {
+            log.error("Tika failed to parse document: {}", filename, e);
             throw new IOException("Failed to extract text from document", e);
         }
     }
 
-    private String getFileExtension(String filename) {
+    public String getFileExtension(String filename) {
         if (filename == null || !filename.contains(".")) {
             return "";
         }
         return filename.substring(filename.lastIndexOf(".") + 1).toLowerCase();
     }
 
-    public java.util.List<Document> getAllDocuments() {
+    public List<Document> getAllDocuments() {
         return documentRepository.findAllByOrderByUploadDateDesc();
     }
 
+    /**
+     * Deletes a document. Not one transaction on purpose: unless a duplicate takes the
+     * chunks over, they are deleted in short batches first, and the row after them. If
+     * that fails part way, the row is still there and the delete can be retried.
+     */
     public void deleteDocument(Long documentId) {
         log.info("Deleting document with ID: {}", documentId);
-        documentRepository.deleteById(documentId);
-        // Note: Vector embeddings cleanup should be handled separately
-        // Spring AI VectorStore doesn't have a built-in way to delete by metadata
-        // This is a known limitation we'll address later
+
+        // If other uploads share this document's text, hand it (and its chunks) to the oldest of them
+        boolean promoted = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            boolean handedOver = documentRepository.findById(documentId)
+                .map(this::promoteDuplicate)
+                .orElse(false);
+            if (handedOver) {
+                documentRepository.deleteById(documentId);
+            }
+            return handedOver;
+        }));
+
+        if (!promoted) {
+            // The foreign key cascade only removes chunks stored after the batches ran
+            vectorStoreService.deleteByDocumentId(documentId);
+            documentRepository.deleteById(documentId);
+        }
+        semanticAnswerCache.invalidateDocuments(List.of(documentId));
+    }
+
+    private boolean promoteDuplicate(Document canonical) {
+        List<Document> duplicates = documentRepository.findByCanonicalDocumentIdOrderByIdAsc(canonical.getId());
+        if (duplicates.isEmpty()) {
+            return false;
+        }
+
+        Document heir = duplicates.get(0);
+        heir.setCanonicalDocumentId(null);
+        documentRepository.save(heir);
+        // The heir takes over the chunks too, so they aren't deleted with the canonical document
+        vectorStoreService.reassignDocument(canonical.getId(), heir.getId(), heir.getFilename());
+
+        for (Document duplicate : duplicates.subList(1, duplicates.size())) {
+            duplicate.setCanonicalDocumentId(heir.getId());
+            documentRepository.save(duplicate);
+        }
+        log.info("Promoted document ID: {} to replace deleted document ID: {}", heir.getId(), canonical.getId());
+        return true;
     }
 }
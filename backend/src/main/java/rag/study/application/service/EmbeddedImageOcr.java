@@ -0,0 +1,119 @@
+package rag.study.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * OCRs images embedded in slides and PDF pages, such as diagrams and screenshots whose
+ * text the text layer doesn't carry. Icons below {@code ocr.embedded-images.min-size}
+ * pixels are skipped, and images are only decoded on a cache miss, by the OCR worker
+ * where the image source allows it.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddedImageOcr {
+
+    private final OcrService ocrService;
+    private final ImagePreprocessor imagePreprocessor;
+
+    @Value("${ocr.embedded-images.enabled:true}")
+    private boolean enabled;
+
+    @Value("${ocr.embedded-images.min-size:100}")
+    private int minSize;
+
+    @FunctionalInterface
+    public interface ImageDecoder {
+        BufferedImage decode() throws IOException;
+    }
+
+    public boolean isEnabled() {
+        return enabled && ocrService.isAvailable();
+    }
+
+    /**
+     * Starts OCR of one embedded image, hashed on its stored bytes. The future completes
+     * with an empty string for images that are skipped or can't be decoded. On a cache
+     * miss the image is decoded and preprocessed by the OCR worker, so the decoder must
+     * be safe to call from another thread after this returns.
+     */
+    public CompletableFuture<String> submit(String imageHash, int width, int height, ImageDecoder decoder) {
+        return submit(imageHash, width, height, decoder, true);
+    }
+
+    /**
+     * Like {@link #submit}, but decodes on the calling thread, for images whose source
+     * can't be shared, such as a PDFBox document closed once its pages are read.
+     * Preprocessing still runs on the OCR worker.
+     */
+    public CompletableFuture<String> submitDecodingNow(String imageHash, int width, int height, ImageDecoder decoder) {
+        return submit(imageHash, width, height, decoder, false);
+    }
+
+    private CompletableFuture<String> submit(String imageHash, int width, int height, ImageDecoder decoder,
+                                             boolean decodeInTask) {
+        if (width < minSize || height < minSize) {
+            return CompletableFuture.completedFuture("");
+        }
+
+        String variant = "embedded " + imagePreprocessor.describe();
+        Optional<String> cached = ocrService.cached(imageHash, variant);
+        if (cached.isPresent()) {
+            return CompletableFuture.completedFuture(cached.get());
+        }
+
+        boolean preprocess = imagePreprocessor.isEnabled();
+        if (decodeInTask) {
+            return ocrService.submit(imageHash, variant, () -> prepare(decode(decoder), preprocess), preprocess);
+        }
+        BufferedImage image = decode(decoder);
+        if (image == null) {
+            return CompletableFuture.completedFuture("");
+        }
+        return ocrService.submit(imageHash, variant, () -> prepare(image, preprocess), preprocess);
+    }
+
+    // Null for images that can't be decoded, which are skipped
+    private static BufferedImage decode(ImageDecoder decoder) {
+        try {
+            // Null when there is no ImageIO reader, e.g. EMF/WMF vector graphics
+            return decoder.decode();
+        } catch (IOException | RuntimeException e) {
+            log.debug("Skipping embedded image that can't be decoded: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private BufferedImage prepare(BufferedImage image, boolean preprocess) {
+        return image != null && preprocess ? imagePreprocessor.preprocess(image) : image;
+    }
+
+    /**
+     * Waits for the images of one slide or page and joins their non-blank text in order.
+     * Failed images are logged and left out rather than failing the document.
+     */
+    public String join(List<CompletableFuture<String>> images, String where) throws InterruptedException {
+        StringBuilder text = new StringBuilder();
+        for (CompletableFuture<String> image : images) {
+            try {
+                String imageText = image.get().strip();
+                if (!imageText.isEmpty()) {
+                    text.append(imageText).append('\n');
+                }
+            } catch (ExecutionException e) {
+                log.warn("OCR of an embedded image on {} failed: {}", where, e.getCause().getMessage());
+            }
+        }
+        return text.toString();
+    }
+}
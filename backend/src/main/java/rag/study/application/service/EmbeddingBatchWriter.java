@@ -0,0 +1,200 @@
+package rag.study.application.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.ai.retry.NonTransientAiException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+
+/**
+ * Embeds chunks in token-bounded batches, several batches at a time. Concurrency is
+ * shared across all documents and adapts to the provider's rate limit; every batch
+ * retries on its own, so one failure doesn't throw away the batches that succeeded.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EmbeddingBatchWriter {
+
+    private final VectorStoreService vectorStoreService;
+
+    @Value("${embedding.batch.max-tokens:8000}")
+    private int maxTokensPerBatch;
+
+    @Value("${embedding.batch.max-chunks:256}")
+    private int maxChunksPerBatch;
+
+    @Value("${embedding.concurrency.initial:2}")
+    private int initialConcurrency;
+
+    @Value("${embedding.concurrency.max:8}")
+    private int maxConcurrency;
+
+    @Value("${embedding.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${embedding.retry.initial-backoff-ms:500}")
+    private long initialBackoffMs;
+
+    @Value("${embedding.retry.max-backoff-ms:30000}")
+    private long maxBackoffMs;
+
+    private AdaptiveConcurrencyLimiter limiter;
+
+    @PostConstruct
+    void init() {
+        limiter = new AdaptiveConcurrencyLimiter(initialConcurrency, 1, maxConcurrency, 0.5);
+    }
+
+    /**
+     * Embeds all chunks and hands each successful batch to {@code onBatchEmbedded}
+     * (possibly from several threads at once). Blocks until every batch has either
+     * been handed off or given up on.
+     */
+    public Result write(List<Document> chunks, BiConsumer<List<Document>, List<float[]>> onBatchEmbedded)
+            throws InterruptedException {
+        List<List<Document>> batches = createBatches(chunks);
+        log.info("Embedding {} chunks in {} batches (concurrency limit {})", chunks.size(), batches.size(), limiter.getLimit());
+
+        AtomicInteger embeddedChunks = new AtomicInteger();
+        AtomicInteger failedChunks = new AtomicInteger();
+        AtomicReference<String> lastError = new AtomicReference<>();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (List<Document> batch : batches) {
+                // Dispatch in order; the limiter decides how many run at once
+                limiter.acquire();
+                try {
+                    executor.execute(() -> {
+                        try {
+                            List<float[]> embeddings = embedWithRetry(batch);
+                            onBatchEmbedded.accept(batch, embeddings);
+                            embeddedChunks.addAndGet(batch.size());
+                        } catch (Exception e) {
+                            log.error("Giving up on batch of {} chunks: {}", batch.size(), e.getMessage());
+                            failedChunks.addAndGet(batch.size());
+                            lastError.set(e.getMessage());
+                        }
+                    });
+                } catch (RuntimeException e) {
+                    // The task never ran, so its permit is still ours to return
+                    limiter.release();
+                    throw e;
+                }
+            }
+        }
+
+        return new Result(batches.size(), embeddedChunks.get(), failedChunks.get(), lastError.get());
+    }
+
+    // Caller holds a limiter permit on entry; the permit is always released before returning
+    private List<float[]> embedWithRetry(List<Document> batch) throws InterruptedException {
+        for (int attempt = 1; ; attempt++) {
+            if (attempt > 1) {
+                limiter.acquire();
+            }
+
+            RuntimeException failure;
+            try {
+                List<float[]> embeddings = vectorStoreService.embed(batch);
+                limiter.onSuccess();
+                return embeddings;
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                limiter.release();
+            }
+
+            boolean rateLimited = isRateLimited(failure);
+            if (rateLimited) {
+                limiter.onRateLimited();
+                log.warn("Embedding batch rate limited (attempt {}/{}), concurrency limit now {}",
+                    attempt, maxAttempts, limiter.getLimit());
+            } else {
+                log.warn("Embedding batch failed (attempt {}/{}): {}", attempt, maxAttempts, failure.getMessage());
+            }
+
+            if (attempt >= maxAttempts || (!rateLimited && failure instanceof NonTransientAiException)) {
+                throw failure;
+            }
+
+            Thread.sleep(backoffMillis(attempt));
+        }
+    }
+
+    private List<List<Document>> createBatches(List<Document> chunks) {
+        List<List<Document>> batches = new ArrayList<>();
+        List<Document> current = new ArrayList<>();
+        int currentTokens = 0;
+
+        for (Document chunk : chunks) {
+            int tokens = estimateTokens(chunk);
+            if (!current.isEmpty()
+                && (currentTokens + tokens > maxTokensPerBatch || current.size() >= maxChunksPerBatch)) {
+                batches.add(current);
+                current = new ArrayList<>();
+                currentTokens = 0;
+            }
+            current.add(chunk);
+            currentTokens += tokens;
+        }
+
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    private int estimateTokens(Document chunk) {
+        // Chunks carry their exact count from the tokenizer
+        if (chunk.getMetadata().get("token_count") instanceof Number tokenCount) {
+            return tokenCount.intValue();
+        }
+
+        // Otherwise roughly four characters per token for English text
+        String text = chunk.getText();
+        return text == null ? 0 : text.length() / 4 + 1;
+    }
+
+    private long backoffMillis(int attempt) {
+        // Exponential backoff with full jitter
+        long ceiling = Math.min(maxBackoffMs, initialBackoffMs << Math.min(attempt - 1, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling / 2, ceiling + 1);
+    }
+
+    private static boolean isRateLimited(Throwable error) {
+        for (Throwable t = error; t != null; t = t.getCause()) {
+            if (t instanceof RestClientResponseException e && e.getStatusCode().value() == 429) {
+                return true;
+            }
+            // Spring AI's response error handler reports the status code at the start of the message
+            if (t.getMessage() != null && t.getMessage().startsWith("429")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Result {
+        private final int batches;
+        private final int embeddedChunks;
+        private final int failedChunks;
+        private final String lastError;
+    }
+}
@@ -0,0 +1,164 @@
+package rag.study.application.service;
+
+import com.pgvector.PGvector;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * Two-tier cache of chunk embeddings: a bounded in-process LRU in front of the
+ * embedding_cache table. Keys are SHA-256 of the normalized text plus the model name.
+ */
+@Component
+@Slf4j
+public class EmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private static final String SELECT_SQL =
+        "SELECT content_hash, embedding::text FROM embedding_cache WHERE model = ? AND content_hash = ANY(?)";
+    private static final String INSERT_SQL =
+        "INSERT INTO embedding_cache (content_hash, model, embedding) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final String model;
+    private final boolean databaseEnabled;
+    private final LruCache<String, float[]> memory;
+
+    private final Counter memoryHits;
+    private final Counter memoryMisses;
+    private final Counter databaseHits;
+    private final Counter databaseMisses;
+
+    public EmbeddingCache(JdbcTemplate jdbcTemplate,
+                          MeterRegistry meterRegistry,
+                          @Value("${spring.ai.openai.embedding.options.model}") String model,
+                          @Value("${embedding.cache.memory.max-entries:5000}") int maxMemoryEntries,
+                          @Value("${embedding.cache.database.enabled:true}") boolean databaseEnabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.model = model;
+        this.databaseEnabled = databaseEnabled;
+        this.memory = new LruCache<>(maxMemoryEntries);
+
+        this.memoryHits = lookupCounter(meterRegistry, "memory", "hit");
+        this.memoryMisses = lookupCounter(meterRegistry, "memory", "miss");
+        this.databaseHits = lookupCounter(meterRegistry, "database", "hit");
+        this.databaseMisses = lookupCounter(meterRegistry, "database", "miss");
+        Gauge.builder("embedding.cache.memory.size", memory, LruCache::size)
+            .description("Entries in the in-process embedding cache")
+            .register(meterRegistry);
+    }
+
+    public String key(String text) {
+        String normalized = WHITESPACE.matcher(Normalizer.normalize(text, Normalizer.Form.NFC)).replaceAll(" ").trim();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(model.getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(normalized.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Looks up every key, returning a list of the same size with {@code null} for misses.
+     */
+    public List<float[]> getAll(List<String> keys) {
+        List<float[]> results = new ArrayList<>(keys.size());
+        List<String> memoryMissKeys = new ArrayList<>();
+
+        for (String key : keys) {
+            float[] embedding = memory.get(key);
+            results.add(embedding);
+            if (embedding == null) {
+                memoryMissKeys.add(key);
+            }
+        }
+        memoryHits.increment(keys.size() - memoryMissKeys.size());
+        memoryMisses.increment(memoryMissKeys.size());
+
+        if (!databaseEnabled || memoryMissKeys.isEmpty()) {
+            return results;
+        }
+
+        Map<String, float[]> found = loadFromDatabase(memoryMissKeys);
+        databaseHits.increment(found.size());
+        databaseMisses.increment(memoryMissKeys.size() - found.size());
+
+        for (int i = 0; i < keys.size(); i++) {
+            if (results.get(i) == null) {
+                float[] embedding = found.get(keys.get(i));
+                if (embedding != null) {
+                    results.set(i, embedding);
+                    memory.put(keys.get(i), embedding);
+                }
+            }
+        }
+        return results;
+    }
+
+    public void putAll(List<String> keys, List<float[]> embeddings) {
+        for (int i = 0; i < keys.size(); i++) {
+            memory.put(keys.get(i), embeddings.get(i));
+        }
+
+        if (!databaseEnabled || keys.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            rows.add(new Object[] { keys.get(i), model, new PGvector(embeddings.get(i)) });
+        }
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        } catch (Exception e) {
+            // The cache is an optimization; never fail ingestion because of it
+            log.warn("Failed to write {} embeddings to embedding_cache: {}", rows.size(), e.getMessage());
+        }
+    }
+
+    private Map<String, float[]> loadFromDatabase(List<String> keys) {
+        Map<String, float[]> found = new HashMap<>();
+        try {
+            jdbcTemplate.query(SELECT_SQL,
+                ps -> {
+                    ps.setString(1, model);
+                    Array hashes = ps.getConnection().createArrayOf("bpchar", keys.toArray());
+                    ps.setArray(2, hashes);
+                },
+                rs -> {
+                    found.put(rs.getString(1), new PGvector(rs.getString(2)).toArray());
+                });
+        } catch (Exception e) {
+            log.warn("Embedding cache lookup failed, treating as miss: {}", e.getMessage());
+        }
+        return found;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String tier, String result) {
+        return Counter.builder("embedding.cache.lookups")
+            .description("Embedding cache lookups by tier and result")
+            .tag("tier", tier)
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,236 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs text extraction on a dedicated, size-bounded pool so heavy parses can't take
+ * over the rest of the service. Each parse gets a wall-clock budget that starts when
+ * it leaves the queue; callers get a timeout error when it runs out and the worker is
+ * interrupted. Steps that block on downstream work, like handing chunks to the embed
+ * stage, can pause the budget with {@link #runWithDeadlinePaused} so it only covers
+ * parsing.
+ */
+@Component
+@Slf4j
+public class ExtractionExecutor {
+
+    // Deadline of the extraction running on the current worker thread, if any
+    private static final ThreadLocal<Deadline> CURRENT_DEADLINE = new ThreadLocal<>();
+
+    private final ThreadPoolExecutor pool;
+    private final ScheduledExecutorService watchdog;
+    private final Duration timeout;
+
+    private final MeterRegistry meterRegistry;
+    private final Timer queueWait;
+    private final Counter rejected;
+
+    public ExtractionExecutor(MeterRegistry meterRegistry,
+                              @Value("${extraction.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int parallelism,
+                              @Value("${extraction.queue-capacity:100}") int queueCapacity,
+                              @Value("${extraction.timeout-seconds:120}") long timeoutSeconds) {
+        this.meterRegistry = meterRegistry;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "extract-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.watchdog = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "extract-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.queueWait = Timer.builder("extraction.queue.wait")
+            .description("Time documents wait for an extraction worker")
+            .register(meterRegistry);
+        this.rejected = Counter.builder("extraction.rejected")
+            .description("Extractions rejected because the queue was full")
+            .register(meterRegistry);
+        Gauge.builder("extraction.queue.depth", pool, p -> p.getQueue().size())
+            .description("Documents waiting for an extraction worker")
+            .register(meterRegistry);
+        Gauge.builder("extraction.active", pool, ThreadPoolExecutor::getActiveCount)
+            .description("Extractions currently running")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+        watchdog.shutdownNow();
+    }
+
+    public <T> T execute(String filename, Callable<T> parse) throws IOException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        long enqueuedAt = System.nanoTime();
+
+        Future<?> work;
+        try {
+            work = pool.submit(() -> run(filename, parse, result, enqueuedAt));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new IOException("Too many documents are being extracted right now. Please try again shortly.", e);
+        }
+
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            // Caller gave up: cancel queued work or interrupt the running parse
+            result.cancel(true);
+            work.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction of " + filename + " was cancelled");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof TimeoutException) {
+                throw new IOException("Extraction of " + filename + " timed out after " + timeout.toSeconds() + "s", cause);
+            }
+            if (cause instanceof IOException ioException) {
+                throw ioException;
+            }
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IOException("Extraction of " + filename + " failed", cause);
+        }
+    }
+
+    /**
+     * Runs a blocking step with the current extraction's deadline stopped, so waiting on
+     * other stages doesn't use up the parse budget. Outside an extraction the step just runs.
+     */
+    public void runWithDeadlinePaused(Runnable step) {
+        Deadline deadline = CURRENT_DEADLINE.get();
+        if (deadline == null) {
+            step.run();
+            return;
+        }
+        deadline.pause();
+        try {
+            step.run();
+        } finally {
+            deadline.resume();
+        }
+    }
+
+    private <T> void run(String filename, Callable<T> parse, CompletableFuture<T> result, long enqueuedAt) {
+        queueWait.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+        if (result.isDone()) {
+            return; // cancelled while queued
+        }
+
+        Thread worker = Thread.currentThread();
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicBoolean timedOut = new AtomicBoolean(false);
+
+        Deadline deadline = new Deadline(() -> {
+            if (result.completeExceptionally(new TimeoutException())) {
+                timedOut.set(true);
+                log.warn("Extraction of {} exceeded {}s, interrupting worker", filename, timeout.toSeconds());
+                synchronized (running) {
+                    if (running.get()) {
+                        worker.interrupt();
+                    }
+                }
+            }
+        }, timeout.toNanos());
+        deadline.resume();
+        CURRENT_DEADLINE.set(deadline);
+
+        long startedAt = System.nanoTime();
+        boolean failed = false;
+        try {
+            result.complete(parse.call());
+        } catch (Throwable t) {
+            failed = true;
+            result.completeExceptionally(t);
+        } finally {
+            CURRENT_DEADLINE.remove();
+            deadline.cancel();
+            synchronized (running) {
+                running.set(false);
+                // Don't leak the watchdog's interrupt into the next task on this worker
+                Thread.interrupted();
+            }
+
+            String outcome = timedOut.get() ? "timeout" : failed ? "failure" : "success";
+            Timer.builder("extraction.duration")
+                .description("Wall-clock time spent extracting a document")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * A time budget that only runs while it isn't paused. Pauses nest.
+     */
+    private final class Deadline {
+        private final Runnable onExpiry;
+        private long remainingNanos;
+        private long resumedAt;
+        private ScheduledFuture<?> expiry;
+        // Starts paused; resume() starts the clock
+        private int pauses = 1;
+        private boolean cancelled;
+
+        private Deadline(Runnable onExpiry, long budgetNanos) {
+            this.onExpiry = onExpiry;
+            this.remainingNanos = budgetNanos;
+        }
+
+        synchronized void pause() {
+            if (cancelled || pauses++ > 0) {
+                return;
+            }
+            expiry.cancel(false);
+            remainingNanos -= System.nanoTime() - resumedAt;
+        }
+
+        synchronized void resume() {
+            if (cancelled || --pauses > 0) {
+                return;
+            }
+            resumedAt = System.nanoTime();
+            expiry = watchdog.schedule(onExpiry, Math.max(0, remainingNanos), TimeUnit.NANOSECONDS);
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (expiry != null) {
+                expiry.cancel(false);
+            }
+        }
+    }
+}
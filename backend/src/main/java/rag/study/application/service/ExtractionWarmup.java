@@ -0,0 +1,139 @@
+package rag.study.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.sl.usermodel.PictureData;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFPictureData;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTextBox;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Runs a few small documents through the extraction and chunking path at startup, so
+ * parser class loading, font and tokenizer initialization and the first JIT passes
+ * happen before traffic arrives. Application runners finish before Spring Boot marks
+ * the app ready, so the readiness probe stays down until the warm-up is done.
+ * Failures are logged and don't stop startup.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ExtractionWarmup implements ApplicationRunner {
+
+    private static final String SAMPLE_TEXT =
+        "Photosynthesis converts light energy into chemical energy stored in glucose.";
+
+    private final DocumentProcessingService documentProcessingService;
+    private final VectorStoreService vectorStoreService;
+    private final TokenCounter tokenCounter;
+
+    @Value("${extraction.warmup.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    public void run(ApplicationArguments args) throws IOException {
+        if (!enabled) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        Path directory = Files.createTempDirectory("extraction-warmup");
+        try {
+            warmUp(directory, "photosynthesis.pdf", this::copyBundledPdf);
+            warmUp(directory, "warmup.pptx", this::writeSamplePptx);
+            warmUp(directory, "warmup.png", file -> Files.write(file, samplePng()));
+        } finally {
+            deleteRecursively(directory);
+        }
+        log.info("Extraction warm-up finished in {} ms", (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+    @FunctionalInterface
+    private interface SampleWriter {
+        void write(Path file) throws IOException;
+    }
+
+    private void warmUp(Path directory, String filename, SampleWriter writer) {
+        long startedAt = System.nanoTime();
+        try {
+            Path file = directory.resolve(filename);
+            writer.write(file);
+
+            String fileType = documentProcessingService.getFileExtension(filename);
+            ChunkingContentHandler handler = vectorStoreService.createChunkingHandler(fileType,
+                chunk -> tokenCounter.count(chunk.text()));
+            documentProcessingService.extractText(file, filename, handler);
+            handler.finish();
+
+            log.debug("Warmed up {} extraction in {} ms ({} chunks)", fileType,
+                (System.nanoTime() - startedAt) / 1_000_000, handler.getChunkCount());
+        } catch (Exception e) {
+            log.warn("Extraction warm-up with {} failed: {}", filename, e.getMessage());
+        }
+    }
+
+    private void copyBundledPdf(Path file) throws IOException {
+        try (InputStream inputStream = new ClassPathResource("warmup/photosynthesis.pdf").getInputStream()) {
+            Files.copy(inputStream, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void writeSamplePptx(Path file) throws IOException {
+        try (XMLSlideShow show = new XMLSlideShow(); OutputStream outputStream = Files.newOutputStream(file)) {
+            XSLFSlide slide = show.createSlide();
+            XSLFTextBox textBox = slide.createTextBox();
+            textBox.setAnchor(new Rectangle(50, 50, 600, 100));
+            textBox.setText(SAMPLE_TEXT);
+
+            XSLFPictureData picture = show.addPicture(samplePng(), PictureData.PictureType.PNG);
+            slide.createPicture(picture).setAnchor(new Rectangle(50, 200, 400, 200));
+            show.write(outputStream);
+        }
+    }
+
+    private static byte[] samplePng() throws IOException {
+        BufferedImage image = new BufferedImage(800, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.setColor(Color.BLACK);
+            graphics.setFont(new Font(Font.SANS_SERIF, Font.PLAIN, 28));
+            graphics.drawString("Light + CO2 + H2O -> glucose + O2", 40, 110);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", bytes);
+        return bytes.toByteArray();
+    }
+
+    private static void deleteRecursively(Path directory) {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        } catch (IOException e) {
+            log.debug("Could not clean up warm-up files in {}", directory, e);
+        }
+    }
+}
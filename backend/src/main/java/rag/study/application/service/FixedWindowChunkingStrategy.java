@@ -0,0 +1,43 @@
+package rag.study.application.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Overlapping windows of a fixed size, measured in characters or tokens.
+ */
+@Component
+@RequiredArgsConstructor
+public class FixedWindowChunkingStrategy implements ChunkingStrategy {
+
+    private final TokenCounter tokenCounter;
+
+    // "characters" keeps the original 500/50 character windows; "tokens" measures with the model's tokenizer
+    @Value("${chunking.unit:characters}")
+    private String chunkingUnit;
+
+    @Value("${chunking.characters.size:500}")
+    private int chunkSize;
+
+    @Value("${chunking.characters.overlap:50}")
+    private int chunkOverlap;
+
+    @Value("${chunking.tokens.size:256}")
+    private int chunkTokens;
+
+    @Value("${chunking.tokens.overlap:32}")
+    private int chunkTokenOverlap;
+
+    @Override
+    public String getName() {
+        return "fixed";
+    }
+
+    @Override
+    public Chunker newChunker() {
+        return "tokens".equalsIgnoreCase(chunkingUnit)
+            ? new TokenChunker(tokenCounter, chunkTokens, chunkTokenOverlap)
+            : new TextChunker(chunkSize, chunkOverlap);
+    }
+}
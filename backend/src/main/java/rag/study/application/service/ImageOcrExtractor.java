@@ -0,0 +1,75 @@
+package rag.study.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * OCRs uploaded images after cleaning them up with {@link ImagePreprocessor}, instead
+ * of handing the full-resolution photo to Tesseract through Tika.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ImageOcrExtractor {
+
+    private final OcrService ocrService;
+    private final ImagePreprocessor imagePreprocessor;
+
+    /**
+     * @return false if OCR isn't available or the image can't be decoded, leaving it to Tika
+     */
+    public boolean extract(Path file, String filename, ContentHandler handler) throws IOException, SAXException {
+        if (!ocrService.isAvailable()) {
+            return false;
+        }
+
+        byte[] bytes = Files.readAllBytes(file);
+        String imageHash = OcrCache.hash(bytes);
+        String variant = imagePreprocessor.describe();
+
+        String text = ocrService.cached(imageHash, variant).orElse(null);
+        if (text == null) {
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+            if (image == null) {
+                log.debug("No ImageIO reader for {}, leaving it to Tika", filename);
+                return false;
+            }
+            text = recognize(imageHash, variant, image, filename);
+        }
+
+        char[] chars = text.toCharArray();
+        handler.characters(chars, 0, chars.length);
+        return true;
+    }
+
+    private String recognize(String imageHash, String variant, BufferedImage image, String filename) throws IOException {
+        boolean preprocess = imagePreprocessor.isEnabled();
+        if (preprocess) {
+            image = imagePreprocessor.preprocess(image);
+        }
+
+        try {
+            return ocrService.submit(imageHash, variant, image, preprocess).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("OCR of " + filename + " was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("OCR of " + filename + " failed", e.getCause());
+        }
+    }
+}
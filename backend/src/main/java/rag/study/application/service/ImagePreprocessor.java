@@ -0,0 +1,238 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/**
+ * Prepares photos for OCR with plain JDK imaging: downscale to the target DPI,
+ * grayscale, Otsu binarization and projection-profile deskew. Tesseract's time
+ * grows with pixel count, and phone photos carry far more pixels than the text
+ * needs. Each step is timed under {@code ocr.preprocess.duration}.
+ */
+@Component
+public class ImagePreprocessor {
+
+    // Deskew search range and step, in degrees
+    private static final double MAX_SKEW = 10.0;
+    private static final double SKEW_STEP = 0.5;
+    // Deskew estimates the angle on a copy at most this wide
+    private static final int SKEW_SAMPLE_WIDTH = 800;
+
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary pixelsBefore;
+    private final DistributionSummary pixelsAfter;
+
+    @Value("${ocr.preprocess.enabled:true}")
+    private boolean enabled;
+
+    // Photos carry no reliable DPI, so the long edge is assumed to span a page this long
+    @Value("${ocr.preprocess.target-dpi:200}")
+    private int targetDpi;
+
+    @Value("${ocr.preprocess.page-inches:11}")
+    private double pageInches;
+
+    @Value("${ocr.preprocess.deskew:true}")
+    private boolean deskew;
+
+    public ImagePreprocessor(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.pixelsBefore = DistributionSummary.builder("ocr.preprocess.pixels")
+            .description("Image size in pixels around preprocessing")
+            .tag("stage", "before")
+            .register(meterRegistry);
+        this.pixelsAfter = DistributionSummary.builder("ocr.preprocess.pixels")
+            .description("Image size in pixels around preprocessing")
+            .tag("stage", "after")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Describes the current settings, so cached OCR results are tied to them.
+     */
+    public String describe() {
+        return enabled
+            ? "image dpi=" + targetDpi + " page=" + pageInches + " deskew=" + deskew
+            : "image raw";
+    }
+
+    public BufferedImage preprocess(BufferedImage image) {
+        pixelsBefore.record((double) image.getWidth() * image.getHeight());
+
+        BufferedImage result = timed("scale", image, this::scaleToGray);
+        result = timed("binarize", result, ImagePreprocessor::binarize);
+        if (deskew) {
+            result = timed("deskew", result, ImagePreprocessor::deskew);
+        }
+
+        pixelsAfter.record((double) result.getWidth() * result.getHeight());
+        return result;
+    }
+
+    private BufferedImage timed(String step, BufferedImage image, UnaryOperator<BufferedImage> operation) {
+        long startedAt = System.nanoTime();
+        try {
+            return operation.apply(image);
+        } finally {
+            Timer.builder("ocr.preprocess.duration")
+                .description("Time spent on one image preprocessing step")
+                .tag("step", step)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Downscales in halving steps (single large steps alias thin strokes away) and converts to gray
+    private BufferedImage scaleToGray(BufferedImage image) {
+        int longEdge = Math.max(image.getWidth(), image.getHeight());
+        double scale = Math.min(1.0, targetDpi * pageInches / longEdge);
+
+        BufferedImage current = image;
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int targetWidth = Math.max(1, (int) Math.round(width * scale));
+        int targetHeight = Math.max(1, (int) Math.round(height * scale));
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            current = draw(current, width, height);
+        } while (width > targetWidth || height > targetHeight);
+        return current;
+    }
+
+    private static BufferedImage draw(BufferedImage source, int width, int height) {
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = target.createGraphics();
+        try {
+            // Transparent areas become white paper rather than black
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        return target;
+    }
+
+    private static BufferedImage binarize(BufferedImage gray) {
+        byte[] pixels = ((DataBufferByte) gray.getRaster().getDataBuffer()).getData();
+        int threshold = otsuThreshold(pixels);
+
+        BufferedImage binary = new BufferedImage(gray.getWidth(), gray.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        byte[] out = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        for (int i = 0; i < pixels.length; i++) {
+            out[i] = (pixels[i] & 0xFF) > threshold ? (byte) 0xFF : 0;
+        }
+        return binary;
+    }
+
+    // Threshold that maximizes the variance between the dark and light classes
+    private static int otsuThreshold(byte[] pixels) {
+        long[] histogram = new long[256];
+        for (byte pixel : pixels) {
+            histogram[pixel & 0xFF]++;
+        }
+
+        long total = pixels.length;
+        double sum = 0;
+        for (int i = 0; i < 256; i++) {
+            sum += (double) i * histogram[i];
+        }
+
+        double sumBackground = 0;
+        long weightBackground = 0;
+        double bestVariance = -1;
+        int threshold = 127;
+        for (int t = 0; t < 256; t++) {
+            weightBackground += histogram[t];
+            if (weightBackground == 0) {
+                continue;
+            }
+            long weightForeground = total - weightBackground;
+            if (weightForeground == 0) {
+                break;
+            }
+            sumBackground += (double) t * histogram[t];
+            double meanBackground = sumBackground / weightBackground;
+            double meanForeground = (sum - sumBackground) / weightForeground;
+            double variance = (double) weightBackground * weightForeground
+                * (meanBackground - meanForeground) * (meanBackground - meanForeground);
+            if (variance > bestVariance) {
+                bestVariance = variance;
+                threshold = t;
+            }
+        }
+        return threshold;
+    }
+
+    // Text lines are sharpest in the row profile of dark pixels at the right angle
+    private static BufferedImage deskew(BufferedImage binary) {
+        int step = Math.max(1, binary.getWidth() / SKEW_SAMPLE_WIDTH);
+        byte[] pixels = ((DataBufferByte) binary.getRaster().getDataBuffer()).getData();
+        int width = binary.getWidth();
+        int height = binary.getHeight();
+
+        double bestAngle = 0;
+        double bestScore = -1;
+        int rows = (int) Math.ceil(Math.hypot(width, height)) + 1;
+        for (double angle = -MAX_SKEW; angle <= MAX_SKEW + 1e-9; angle += SKEW_STEP) {
+            double radians = Math.toRadians(angle);
+            double sin = Math.sin(radians);
+            double cos = Math.cos(radians);
+            long[] profile = new long[2 * rows];
+            for (int y = 0; y < height; y += step) {
+                for (int x = 0; x < width; x += step) {
+                    if (pixels[y * width + x] == 0) {
+                        profile[(int) Math.round(y * cos - x * sin) + rows]++;
+                    }
+                }
+            }
+            double score = 0;
+            for (int i = 1; i < profile.length; i++) {
+                long difference = profile[i] - profile[i - 1];
+                score += (double) difference * difference;
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestAngle = angle;
+            }
+        }
+
+        if (Math.abs(bestAngle) < SKEW_STEP / 2) {
+            return binary;
+        }
+        // Lines run at bestAngle; rotate them back to horizontal
+        return rotate(binary, Math.toRadians(-bestAngle));
+    }
+
+    private static BufferedImage rotate(BufferedImage image, double radians) {
+        BufferedImage rotated = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_BYTE_GRAY);
+        Graphics2D graphics = rotated.createGraphics();
+        try {
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, image.getWidth(), image.getHeight());
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            graphics.drawImage(image, AffineTransform.getRotateInstance(radians, image.getWidth() / 2.0, image.getHeight() / 2.0), null);
+        } finally {
+            graphics.dispose();
+        }
+        return rotated;
+    }
+}
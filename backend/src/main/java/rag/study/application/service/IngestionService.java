@@ -0,0 +1,546 @@
+package rag.study.application.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import rag.study.application.model.IngestionJob;
+import rag.study.application.model.IngestionStatus;
+import rag.study.application.repository.IngestionJobRepository;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs uploads through extract -> embed -> store. Each stage has its own bounded
+ * queue and worker pool, so a slow stage applies backpressure to the one before it
+ * instead of starving it of threads. Extraction chunks text as it is parsed, and
+ * chunks move through embedding and storage in batches.
+ * <p>
+ * Each stored batch is searchable right away. The job tracks a high-water mark, the
+ * longest run of leading chunks that are all stored, and reports PARTIALLY_INDEXED
+ * once it moves, so the first pages of a large document can be asked about while the
+ * rest is still being embedded.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class IngestionService {
+
+    private final DocumentProcessingService documentProcessingService;
+    private final VectorStoreService vectorStoreService;
+    private final EmbeddingBatchWriter embeddingBatchWriter;
+    private final IngestionJobRepository ingestionJobRepository;
+    private final SemanticAnswerCache semanticAnswerCache;
+    private final ExtractionExecutor extractionExecutor;
+
+    @Value("${ingestion.spool-dir:${java.io.tmpdir}/study-buddy-uploads}")
+    private String spoolDir;
+
+    @Value("${ingestion.extract.threads:16}")
+    private int extractThreads;
+
+    @Value("${ingestion.extract.queue-capacity:50}")
+    private int extractQueueCapacity;
+
+    @Value("${ingestion.embed.batch-chunks:64}")
+    private int streamBatchSize;
+
+    @Value("${ingestion.embed.threads:4}")
+    private int embedThreads;
+
+    @Value("${ingestion.embed.queue-capacity:20}")
+    private int embedQueueCapacity;
+
+    @Value("${ingestion.store.threads:2}")
+    private int storeThreads;
+
+    @Value("${ingestion.store.queue-capacity:20}")
+    private int storeQueueCapacity;
+
+    // Uploads being ingested, by content hash; identical uploads wait for them instead of ingesting twice
+    private final ConcurrentHashMap<String, IngestionContext> inFlight = new ConcurrentHashMap<>();
+
+    private Path spoolPath;
+    private ThreadPoolExecutor extractStage;
+    private ThreadPoolExecutor embedStage;
+    private ThreadPoolExecutor storeStage;
+
+    @PostConstruct
+    void start() throws IOException {
+        spoolPath = Files.createDirectories(Paths.get(spoolDir));
+
+        // The first stage rejects when full so uploads fail fast; later stages block the
+        // upstream worker until there is room, which keeps in-flight work bounded.
+        // Extract workers only dispatch to ExtractionExecutor and wait, so they are virtual threads
+        extractStage = newStage(virtualThreads("ingest-extract-"), extractThreads, extractQueueCapacity,
+            new ThreadPoolExecutor.AbortPolicy());
+        embedStage = newStage(platformThreads("ingest-embed-"), embedThreads, embedQueueCapacity, blockingHandOff());
+        storeStage = newStage(platformThreads("ingest-store-"), storeThreads, storeQueueCapacity, blockingHandOff());
+
+        // Spool files and in-memory stage state don't survive a restart
+        int interrupted = ingestionJobRepository.failUnfinishedJobs(
+            IngestionStatus.FAILED,
+            EnumSet.of(IngestionStatus.COMPLETED, IngestionStatus.FAILED),
+            "Ingestion was interrupted by a server restart. Please upload the file again."
+        );
+        if (interrupted > 0) {
+            log.warn("Marked {} unfinished ingestion jobs as failed after restart", interrupted);
+        }
+    }
+
+    @PreDestroy
+    void stop() {
+        for (ThreadPoolExecutor stage : List.of(extractStage, embedStage, storeStage)) {
+            stage.shutdownNow();
+        }
+    }
+
+    public IngestionJob submit(MultipartFile file) throws IOException {
+        documentProcessingService.validateFile(file);
+
+        String filename = file.getOriginalFilename();
+        String fileType = documentProcessingService.getFileExtension(filename);
+
+        // Spool to disk so the request thread can return before any parsing happens,
+        // hashing the bytes on the way through
+        Path spoolFile = Files.createTempFile(spoolPath, "upload-", "." + fileType);
+        String contentHash = spool(file, spoolFile);
+
+        IngestionJob job = new IngestionJob();
+        job.setFilename(filename);
+        job.setFileType(fileType);
+        job.setFileSize(file.getSize());
+        job.setContentHash(contentHash);
+        job.setStatus(IngestionStatus.QUEUED);
+        job = ingestionJobRepository.save(job);
+
+        IngestionContext context = new IngestionContext(job.getId(), spoolFile, filename, fileType, file.getSize(), contentHash);
+        try {
+            start(context);
+        } catch (RejectedExecutionException e) {
+            fail(context, new IllegalStateException("Ingestion queue is full", e));
+            throw e;
+        }
+        return ingestionJobRepository.findById(job.getId()).orElse(job);
+    }
+
+    // Reuses a completed document with the same bytes, waits behind an identical upload
+    // that is still in flight, or queues the upload for extraction
+    private void start(IngestionContext context) throws IOException {
+        while (true) {
+            Optional<rag.study.application.model.Document> existing =
+                documentProcessingService.findReusableDocument(context.contentHash);
+            if (existing.isPresent()) {
+                completeAsDuplicate(context, existing.get());
+                return;
+            }
+
+            IngestionContext leader = inFlight.putIfAbsent(context.contentHash, context);
+            if (leader == null) {
+                extractStage.execute(() -> runStage(context, this::extract));
+                log.info("Queued ingestion job {} for file: {}", context.jobId, context.filename);
+                return;
+            }
+            synchronized (leader) {
+                if (!leader.released) {
+                    leader.followers.add(context);
+                    log.info("Ingestion job {} waits for job {}, which is ingesting the same file",
+                        context.jobId, leader.jobId);
+                    return;
+                }
+            }
+            // The leader finished in between; look again
+        }
+    }
+
+    private void completeAsDuplicate(IngestionContext context, rag.study.application.model.Document canonical)
+            throws IOException {
+        Files.deleteIfExists(context.spoolFile);
+        rag.study.application.model.Document duplicate = documentProcessingService.createDuplicate(
+            canonical, context.filename, context.fileType, context.fileSize);
+
+        updateJob(context.jobId, job -> {
+            job.setDocumentId(duplicate.getId());
+            job.setStatus(IngestionStatus.COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+        });
+        log.info("Upload of {} matches document ID: {}, skipped extraction and embedding",
+            context.filename, canonical.getId());
+    }
+
+    // Ends a leader's turn: waiting identical uploads become duplicates of its document,
+    // or, if it failed, are started again on their own
+    private void release(IngestionContext context) {
+        List<IngestionContext> followers;
+        synchronized (context) {
+            if (context.released) {
+                return;
+            }
+            context.released = true;
+            followers = List.copyOf(context.followers);
+        }
+        inFlight.remove(context.contentHash, context);
+
+        for (IngestionContext follower : followers) {
+            try {
+                start(follower);
+            } catch (Exception e) {
+                fail(follower, e);
+            }
+        }
+    }
+
+    public Optional<IngestionJob> getJob(Long jobId) {
+        return ingestionJobRepository.findById(jobId);
+    }
+
+    private void extract(IngestionContext context) throws IOException {
+        updateJob(context.jobId, job -> job.setStatus(IngestionStatus.EXTRACTING));
+
+        // The document row comes first so chunks can reference its id while parsing is still running
+        rag.study.application.model.Document document = documentProcessingService.createDocument(
+            context.filename, context.fileType, context.fileSize, context.contentHash);
+        context.documentId = document.getId();
+        // Chunks become searchable batch by batch; answers built from part of the document aren't cached
+        semanticAnswerCache.indexingStarted(document.getId());
+        updateJob(context.jobId, job -> job.setDocumentId(document.getId()));
+
+        // Chunks are cut from Tika's SAX output as it arrives and sent to the embed stage in batches
+        List<Document> batch = new ArrayList<>(streamBatchSize);
+        AtomicInteger chunkIndex = new AtomicInteger();
+        ChunkingContentHandler handler = vectorStoreService.createChunkingHandler(context.fileType, chunk -> {
+            // A parse that outlived its job's timeout ignores interrupts; stop it at the next chunk
+            checkNotCancelled(context);
+            int index = chunkIndex.getAndIncrement();
+            if (chunk.lastSection() != null) {
+                context.lastSections.put(index, chunk.lastSection());
+            }
+            batch.add(vectorStoreService.createChunk(context.documentId, context.filename, index, chunk));
+            if (batch.size() >= streamBatchSize) {
+                // Waiting for room in the embed stage doesn't count against the parse timeout
+                List<Document> chunks = List.copyOf(batch);
+                extractionExecutor.runWithDeadlinePaused(() -> dispatchEmbedBatch(context, chunks));
+                batch.clear();
+            }
+        });
+
+        try {
+            documentProcessingService.extractText(context.spoolFile, context.filename, handler);
+            handler.finish();
+            if (!batch.isEmpty()) {
+                dispatchEmbedBatch(context, List.copyOf(batch));
+            }
+        } finally {
+            deleteSpoolFile(context);
+        }
+
+        if (handler.getChunkCount() == 0) {
+            log.warn("No text could be extracted from file: {}", context.filename);
+            throw new RuntimeException("No text content found in the document");
+        }
+
+        log.info("Successfully extracted {} characters in {} chunks from {}",
+            handler.getCharacterCount(), handler.getChunkCount(), context.filename);
+        // A job that is already partially indexed keeps that status
+        ingestionJobRepository.updateProgress(context.jobId, IngestionStatus.EXTRACTING, IngestionStatus.EMBEDDING,
+            handler.getChunkCount());
+        finishIfDone(context);
+    }
+
+    private void dispatchEmbedBatch(IngestionContext context, List<Document> chunks) {
+        checkNotCancelled(context);
+        context.outstanding.incrementAndGet();
+        try {
+            embedStage.execute(() -> embedBatch(context, chunks));
+        } catch (RejectedExecutionException e) {
+            context.outstanding.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void embedBatch(IngestionContext context, List<Document> chunks) {
+        try {
+            if (context.cancelled) {
+                return; // queued before the job failed; don't pay for its embeddings
+            }
+            // Each embedded batch goes straight to the store stage, so partial progress is kept
+            EmbeddingBatchWriter.Result result = embeddingBatchWriter.write(chunks, (batch, embeddings) -> {
+                context.outstanding.incrementAndGet();
+                try {
+                    storeStage.execute(() -> storeBatch(context, batch, embeddings));
+                } catch (RejectedExecutionException e) {
+                    // The writer counts this batch as failed
+                    context.outstanding.decrementAndGet();
+                    throw e;
+                }
+            });
+
+            if (result.getFailedChunks() > 0) {
+                context.failedChunks.addAndGet(result.getFailedChunks());
+                context.lastError = result.getLastError();
+            }
+        } catch (Exception e) {
+            log.error("Failed to embed batch of {} chunks for ingestion job {}", chunks.size(), context.jobId, e);
+            context.failedChunks.addAndGet(chunks.size());
+            context.lastError = e.getMessage();
+        } finally {
+            finishIfDone(context);
+        }
+    }
+
+    private void storeBatch(IngestionContext context, List<Document> batch, List<float[]> embeddings) {
+        try {
+            if (context.cancelled) {
+                return;
+            }
+            vectorStoreService.store(batch, embeddings);
+            context.storedChunks.addAndGet(batch.size());
+            ingestionJobRepository.incrementStoredChunks(context.jobId, batch.size());
+            advanceHighWaterMark(context, batch);
+        } catch (Exception e) {
+            log.error("Failed to store batch of {} chunks for ingestion job {}", batch.size(), context.jobId, e);
+            context.failedChunks.addAndGet(batch.size());
+            context.lastError = e.getMessage();
+        } finally {
+            finishIfDone(context);
+        }
+    }
+
+    private void advanceHighWaterMark(IngestionContext context, List<Document> batch) {
+        IngestionContext.HighWaterMark mark = context.markStored(batch);
+        if (mark == null) {
+            return;
+        }
+        ingestionJobRepository.advanceHighWaterMark(context.jobId, mark.indexedChunks(), mark.section(),
+            EnumSet.of(IngestionStatus.EXTRACTING, IngestionStatus.EMBEDDING), IngestionStatus.PARTIALLY_INDEXED);
+        log.debug("Ingestion job {}: first {} chunks searchable (through section {})",
+            context.jobId, mark.indexedChunks(), mark.section());
+    }
+
+    // Called once by the extract stage and once per embed and store batch; the last caller finalizes the job
+    private void finishIfDone(IngestionContext context) {
+        if (context.outstanding.decrementAndGet() > 0 || context.cancelled) {
+            return;
+        }
+
+        int stored = context.storedChunks.get();
+        int failed = context.failedChunks.get();
+        if (failed > 0) {
+            fail(context, new IllegalStateException(String.format(
+                "Stored %d of %d chunks; %d failed: %s", stored, stored + failed, failed, context.lastError)));
+            return;
+        }
+
+        updateJob(context.jobId, job -> {
+            job.setStoredChunks(stored);
+            job.setStatus(IngestionStatus.COMPLETED);
+            job.setCompletedAt(LocalDateTime.now());
+        });
+        semanticAnswerCache.indexingFinished(context.documentId);
+        release(context);
+        log.info("Ingestion job {} completed: {} chunks stored for document ID: {}",
+            context.jobId, stored, context.documentId);
+    }
+
+    private void runStage(IngestionContext context, Stage stage) {
+        try {
+            stage.run(context);
+        } catch (Exception e) {
+            fail(context, e);
+        }
+    }
+
+    private void fail(IngestionContext context, Exception e) {
+        log.error("Ingestion job {} failed for file: {}", context.jobId, context.filename, e);
+        // Batches still queued or being parsed for this job are dropped from here on
+        context.cancelled = true;
+        deleteSpoolFile(context);
+        updateJob(context.jobId, job -> {
+            job.setStatus(IngestionStatus.FAILED);
+            job.setErrorMessage(e.getMessage());
+            job.setDocumentId(null);
+            job.setCompletedAt(LocalDateTime.now());
+        });
+
+        // A partial document would still answer questions; its stored chunks go with it through the cascade
+        Long documentId = context.documentId;
+        if (documentId != null) {
+            semanticAnswerCache.indexingFinished(documentId);
+            try {
+                documentProcessingService.deleteDocument(documentId);
+            } catch (Exception deleteError) {
+                log.error("Failed to delete document ID: {} of failed ingestion job {}", documentId, context.jobId,
+                    deleteError);
+            }
+        }
+        release(context);
+    }
+
+    private static void checkNotCancelled(IngestionContext context) {
+        if (context.cancelled) {
+            throw new CancellationException("Ingestion job " + context.jobId + " was cancelled");
+        }
+    }
+
+    private void updateJob(Long jobId, Consumer<IngestionJob> update) {
+        ingestionJobRepository.findById(jobId).ifPresent(job -> {
+            update.accept(job);
+            ingestionJobRepository.save(job);
+        });
+    }
+
+    private static String spool(MultipartFile file, Path spoolFile) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, spoolFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    private void deleteSpoolFile(IngestionContext context) {
+        try {
+            Files.deleteIfExists(context.spoolFile);
+        } catch (IOException e) {
+            log.warn("Failed to delete spool file: {}", context.spoolFile, e);
+        }
+    }
+
+    private static ThreadPoolExecutor newStage(ThreadFactory threadFactory, int threads, int queueCapacity,
+                                               RejectedExecutionHandler rejectionHandler) {
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), threadFactory, rejectionHandler);
+    }
+
+    private static ThreadFactory platformThreads(String namePrefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, namePrefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ThreadFactory virtualThreads(String namePrefix) {
+        return Thread.ofVirtual().name(namePrefix, 1).factory();
+    }
+
+    private static RejectedExecutionHandler blockingHandOff() {
+        return (runnable, executor) -> {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Ingestion stage is shut down");
+            }
+            try {
+                executor.getQueue().put(runnable);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for ingestion stage capacity", e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface Stage {
+        void run(IngestionContext context) throws Exception;
+    }
+
+    /**
+     * State shared by the stages working on one upload. Chunks are not kept here; they
+     * only live in the batches travelling between stages.
+     */
+    private static class IngestionContext {
+        private final Long jobId;
+        private final Path spoolFile;
+        private final String filename;
+        private final String fileType;
+        private final long fileSize;
+        private final String contentHash;
+
+        private volatile Long documentId;
+        // Set once the job has failed, so stages still working on it stop
+        private volatile boolean cancelled;
+
+        // Starts at one for the extract stage itself; each in-flight batch adds one
+        private final AtomicInteger outstanding = new AtomicInteger(1);
+        private final AtomicInteger storedChunks = new AtomicInteger();
+        private final AtomicInteger failedChunks = new AtomicInteger();
+        private volatile String lastError;
+
+        // Last page or slide of each chunk that isn't below the high-water mark yet
+        private final Map<Integer, Integer> lastSections = new ConcurrentHashMap<>();
+        private final BitSet storedIndexes = new BitSet();
+
+        // Identical uploads waiting for this one; both guarded by this context
+        private final List<IngestionContext> followers = new ArrayList<>();
+        private boolean released;
+        private int indexedChunks;
+
+        private IngestionContext(Long jobId, Path spoolFile, String filename, String fileType, long fileSize,
+                                 String contentHash) {
+            this.jobId = jobId;
+            this.spoolFile = spoolFile;
+            this.filename = filename;
+            this.fileType = fileType;
+            this.fileSize = fileSize;
+            this.contentHash = contentHash;
+        }
+
+        record HighWaterMark(int indexedChunks, Integer section) {
+        }
+
+        // Records a stored batch; returns the new high-water mark, or null if it didn't move
+        private synchronized HighWaterMark markStored(List<Document> batch) {
+            for (Document chunk : batch) {
+                if (chunk.getMetadata().get("chunk_index") instanceof Number index) {
+                    storedIndexes.set(index.intValue());
+                }
+            }
+
+            int mark = storedIndexes.nextClearBit(indexedChunks);
+            if (mark == indexedChunks) {
+                return null;
+            }
+            Integer section = lastSections.get(mark - 1);
+            for (int i = indexedChunks; i < mark; i++) {
+                lastSections.remove(i);
+            }
+            indexedChunks = mark;
+            return new HighWaterMark(mark, section);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package rag.study.application.service;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Small thread-safe LRU map for in-process caches that don't warrant a cache library.
+ * Entries can optionally expire after a fixed time-to-live.
+ */
+class LruCache<K, V> {
+
+    private final Map<K, Entry<V>> entries;
+    private final long ttlNanos;
+
+    LruCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    LruCache(int maxEntries, Duration ttl) {
+        this.ttlNanos = ttl != null ? ttl.toNanos() : 0L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (ttlNanos > 0 && System.nanoTime() - entry.createdAt > ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value;
+    }
+
+    synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized void clear() {
+        entries.clear();
+    }
+
+    private record Entry<V>(V value, long createdAt) {
+    }
+}
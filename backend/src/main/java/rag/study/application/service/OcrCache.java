@@ -0,0 +1,114 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * OCR text in the ocr_cache table, keyed by SHA-256 of the image and the OCR config.
+ * Logos and diagrams recur across a course's decks and PDFs, and Tesseract is the
+ * slowest step of ingesting them.
+ */
+@Component
+@Slf4j
+public class OcrCache {
+
+    private static final String SELECT_SQL =
+        "SELECT text FROM ocr_cache WHERE image_hash = ? AND config = ?";
+    private static final String INSERT_SQL =
+        "INSERT INTO ocr_cache (image_hash, config, text) VALUES (?, ?, ?) ON CONFLICT DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    public OcrCache(JdbcTemplate jdbcTemplate,
+                    MeterRegistry meterRegistry,
+                    @Value("${ocr.cache.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    public static String hash(byte[] bytes) {
+        return HexFormat.of().formatHex(digest().digest(bytes));
+    }
+
+    /**
+     * Hashes the decoded pixels, for images that only exist rendered in memory.
+     */
+    public static String hash(BufferedImage image) {
+        MessageDigest digest = digest();
+        digest.update(ByteBuffer.allocate(8).putInt(image.getWidth()).putInt(image.getHeight()).array());
+        if (image.getRaster().getDataBuffer() instanceof DataBufferByte bytes) {
+            digest.update(bytes.getData());
+        } else {
+            ByteBuffer row = ByteBuffer.allocate(image.getWidth() * Integer.BYTES);
+            int[] pixels = new int[image.getWidth()];
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, pixels.length, 1, pixels, 0, pixels.length);
+                row.clear();
+                row.asIntBuffer().put(pixels);
+                digest.update(row.array());
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    public Optional<String> get(String imageHash, String config) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        try {
+            List<String> found = jdbcTemplate.queryForList(SELECT_SQL, String.class, imageHash, config);
+            (found.isEmpty() ? misses : hits).increment();
+            return found.stream().findFirst();
+        } catch (Exception e) {
+            log.warn("OCR cache lookup failed, treating as miss: {}", e.getMessage());
+            misses.increment();
+            return Optional.empty();
+        }
+    }
+
+    public void put(String imageHash, String config, String text) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            jdbcTemplate.update(INSERT_SQL, imageHash, config, text);
+        } catch (Exception e) {
+            // The cache is an optimization; never fail ingestion because of it
+            log.warn("Failed to write OCR result to ocr_cache: {}", e.getMessage());
+        }
+    }
+
+    private static MessageDigest digest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("ocr.cache.lookups")
+            .description("OCR cache lookups by result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,228 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs Tesseract on images using a small, bounded pool. OCR is the most expensive
+ * step of ingestion, so callers submit only the images that need it, and block
+ * while the queue is full instead of piling rendered pages up in memory.
+ * <p>
+ * Results are cached by image hash in {@link OcrCache}. The cache config combines the
+ * Tesseract version and language with a caller-supplied variant describing how the
+ * image was produced, so changing any of them re-runs OCR.
+ */
+@Component
+@Slf4j
+public class OcrService {
+
+    private final ThreadPoolExecutor pool;
+    private final OcrCache ocrCache;
+    private final String command;
+    private final String language;
+    private final Duration timeout;
+    private final String version;
+    private final boolean available;
+
+    private final MeterRegistry meterRegistry;
+
+    public OcrService(OcrCache ocrCache,
+                      MeterRegistry meterRegistry,
+                      @Value("${ocr.enabled:true}") boolean enabled,
+                      @Value("${ocr.tesseract.command:tesseract}") String command,
+                      @Value("${ocr.language:eng}") String language,
+                      @Value("${ocr.parallelism:2}") int parallelism,
+                      @Value("${ocr.queue-capacity:8}") int queueCapacity,
+                      @Value("${ocr.timeout-seconds:60}") long timeoutSeconds) {
+        this.ocrCache = ocrCache;
+        this.meterRegistry = meterRegistry;
+        this.command = command;
+        this.language = language;
+        this.timeout = Duration.ofSeconds(timeoutSeconds);
+        this.version = enabled ? probe(command) : null;
+        this.available = version != null;
+
+        AtomicInteger counter = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "ocr-worker-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            (runnable, executor) -> {
+                if (executor.isShutdown()) {
+                    throw new RejectedExecutionException("OCR pool is shut down");
+                }
+                try {
+                    executor.getQueue().put(runnable);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RejectedExecutionException("Interrupted while waiting for OCR capacity", e);
+                }
+            });
+
+        Gauge.builder("ocr.queue.depth", pool, p -> p.getQueue().size())
+            .description("Images waiting for an OCR worker")
+            .register(meterRegistry);
+    }
+
+    @FunctionalInterface
+    public interface ImageSource {
+        BufferedImage get() throws IOException;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    public boolean isAvailable() {
+        return available;
+    }
+
+    /**
+     * Returns the cached text for an image, if it was OCR'd before with the same setup.
+     */
+    public Optional<String> cached(String imageHash, String variant) {
+        return ocrCache.get(imageHash, config(variant));
+    }
+
+    /**
+     * Queues the image for OCR, waiting for queue space if needed, and caches the text
+     * under {@code imageHash}. The future fails with an IOException if Tesseract fails
+     * or runs out of time; cancelling it before a worker picks it up skips the image.
+     * {@code preprocessed} only tags the timing, so OCR time with and without
+     * preprocessing can be compared.
+     */
+    public CompletableFuture<String> submit(String imageHash, String variant, BufferedImage image, boolean preprocessed) {
+        return submit(imageHash, variant, () -> image, preprocessed);
+    }
+
+    /**
+     * Like {@link #submit(String, String, BufferedImage, boolean)}, but the image is
+     * produced by the OCR worker, so decoding and preprocessing don't hold up the caller
+     * and only the encoded image waits in the queue. A source that returns null yields
+     * empty text, which isn't cached.
+     */
+    public CompletableFuture<String> submit(String imageHash, String variant, ImageSource source, boolean preprocessed) {
+        if (!available) {
+            return CompletableFuture.failedFuture(new IOException("OCR is not available"));
+        }
+        CompletableFuture<String> result = new CompletableFuture<>();
+        pool.execute(() -> {
+            if (result.isDone()) {
+                return; // cancelled while queued
+            }
+            try {
+                BufferedImage image = source.get();
+                if (image == null) {
+                    result.complete("");
+                    return;
+                }
+                String text = recognize(image, preprocessed);
+                ocrCache.put(imageHash, config(variant), text);
+                result.complete(text);
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    private String config(String variant) {
+        return "tesseract " + version + "|" + language + "|" + variant;
+    }
+
+    private String recognize(BufferedImage image, boolean preprocessed) throws IOException {
+        Path input = Files.createTempFile("ocr-", ".png");
+        Path output = Files.createTempFile("ocr-", ".txt");
+        long startedAt = System.nanoTime();
+        String outcome = "failure";
+        try {
+            ImageIO.write(image, "png", input.toFile());
+
+            Process process = new ProcessBuilder(command, input.toString(), "stdout", "-l", language)
+                .redirectOutput(output.toFile())
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+            try {
+                if (!process.waitFor(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    process.destroyForcibly();
+                    outcome = "timeout";
+                    throw new IOException("OCR timed out after " + timeout.toSeconds() + "s");
+                }
+            } catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("OCR was interrupted");
+            }
+            if (process.exitValue() != 0) {
+                throw new IOException("Tesseract exited with status " + process.exitValue());
+            }
+
+            String text = Files.readString(output, StandardCharsets.UTF_8);
+            outcome = "success";
+            return text;
+        } finally {
+            Files.deleteIfExists(input);
+            Files.deleteIfExists(output);
+            Timer.builder("ocr.duration")
+                .description("Time spent running Tesseract on one image")
+                .tag("outcome", outcome)
+                .tag("preprocessed", String.valueOf(preprocessed))
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Returns the version line of `tesseract --version`, or null if it can't be run
+    private static String probe(String command) {
+        try {
+            Process process = new ProcessBuilder(command, "--version")
+                .redirectErrorStream(true)
+                .start();
+            String firstLine;
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+                firstLine = reader.readLine();
+                reader.transferTo(Writer.nullWriter());
+            }
+            if (process.waitFor(10, TimeUnit.SECONDS) && process.exitValue() == 0 && firstLine != null) {
+                log.info("OCR enabled with {}", firstLine.trim());
+                return firstLine.trim();
+            }
+            process.destroyForcibly();
+        } catch (IOException e) {
+            log.debug("Tesseract probe failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        log.warn("Tesseract ('{}') is not available; scanned pages will not be OCR'd", command);
+        return null;
+    }
+}
@@ -0,0 +1,151 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically removes vector_store rows that belong to no document. Since V8 every
+ * chunk references its document with a cascading foreign key, so these are rows the
+ * backfill couldn't match: chunks of documents deleted before their vectors were
+ * cleaned up. They are selected a batch at a time through a partial index that holds
+ * only orphans, and deletes are paced to stay under a rows-per-second limit so the
+ * sweep doesn't compete with ingestion and search. Once dead rows pass a share of the
+ * table, the HNSW index is rebuilt and the table vacuumed.
+ */
+@Component
+@Slf4j
+public class OrphanVectorSweeper {
+
+    // Rows without a document_id in their metadata weren't written by ingestion and are left alone.
+    // Must match the predicate of idx_vector_store_orphans (V11) for the index to be used
+    private static final String ORPHAN_CONDITION =
+        "document_id IS NULL AND metadata->>'document_id' IS NOT NULL";
+    private static final String DELETE_SQL =
+        "DELETE FROM vector_store WHERE id IN (SELECT id FROM vector_store WHERE " + ORPHAN_CONDITION
+            + " LIMIT ?) AND " + ORPHAN_CONDITION;
+    private static final String TABLE_STATS_SQL =
+        "SELECT n_live_tup, n_dead_tup FROM pg_stat_user_tables WHERE relname = 'vector_store'";
+    private static final String HNSW_INDEX_SQL =
+        "SELECT indexname FROM pg_indexes WHERE tablename = 'vector_store' AND indexdef LIKE '%USING hnsw%'";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Counter deleted;
+    private final Counter maintenancePasses;
+
+    private volatile double deadFraction;
+
+    @Value("${vector-store.gc.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vector-store.gc.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${vector-store.gc.max-deletes-per-second:2000}")
+    private int maxDeletesPerSecond;
+
+    @Value("${vector-store.gc.maintenance-threshold:0.2}")
+    private double maintenanceThreshold;
+
+    @Value("${vector-store.gc.reindex:true}")
+    private boolean reindex;
+
+    public OrphanVectorSweeper(JdbcTemplate jdbcTemplate, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.meterRegistry = meterRegistry;
+        this.deleted = Counter.builder("vector.gc.deleted")
+            .description("Orphaned vector_store rows deleted")
+            .register(meterRegistry);
+        this.maintenancePasses = Counter.builder("vector.gc.maintenance")
+            .description("Index rebuild and vacuum passes on vector_store")
+            .register(meterRegistry);
+        Gauge.builder("vector.gc.dead.fraction", this, sweeper -> sweeper.deadFraction)
+            .description("Share of dead rows in vector_store at the last check")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(initialDelayString = "${vector-store.gc.initial-delay:PT5M}",
+               fixedDelayString = "${vector-store.gc.interval:PT1H}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+
+        long startedAt = System.nanoTime();
+        String outcome = "failure";
+        try {
+            int removed = sweepOrphans();
+            maintainIfNeeded();
+            outcome = "success";
+            log.info("Orphan vector sweep removed {} rows in {} ms", removed, (System.nanoTime() - startedAt) / 1_000_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            outcome = "interrupted";
+        } catch (Exception e) {
+            log.error("Orphan vector sweep failed", e);
+        } finally {
+            Timer.builder("vector.gc.duration")
+                .description("Time spent on one orphan vector sweep")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int sweepOrphans() throws InterruptedException {
+        int total = 0;
+        while (true) {
+            long batchStartedAt = System.nanoTime();
+            int count = jdbcTemplate.update(DELETE_SQL, batchSize);
+            if (count == 0) {
+                return total;
+            }
+            deleted.increment(count);
+            total += count;
+            log.debug("Deleted {} orphaned vectors, {} so far", count, total);
+            pace(count, System.nanoTime() - batchStartedAt);
+        }
+    }
+
+    // Sleeps long enough that this batch averages at most maxDeletesPerSecond
+    private void pace(int count, long elapsedNanos) throws InterruptedException {
+        long budgetNanos = TimeUnit.SECONDS.toNanos(count) / Math.max(1, maxDeletesPerSecond);
+        if (budgetNanos > elapsedNanos) {
+            TimeUnit.NANOSECONDS.sleep(budgetNanos - elapsedNanos);
+        }
+    }
+
+    private void maintainIfNeeded() {
+        Map<String, Object> stats = jdbcTemplate.queryForList(TABLE_STATS_SQL).stream().findFirst().orElse(null);
+        if (stats == null) {
+            return;
+        }
+        long live = ((Number) stats.get("n_live_tup")).longValue();
+        long dead = ((Number) stats.get("n_dead_tup")).longValue();
+        deadFraction = live + dead == 0 ? 0 : (double) dead / (live + dead);
+        if (deadFraction < maintenanceThreshold) {
+            return;
+        }
+
+        log.info("vector_store is {}% dead rows, running index maintenance", Math.round(deadFraction * 100));
+        // Rebuilding HNSW is faster than letting vacuum repair its graph around every deleted node;
+        // both statements run outside a transaction and CONCURRENTLY doesn't block search
+        if (reindex) {
+            for (String index : jdbcTemplate.queryForList(HNSW_INDEX_SQL, String.class)) {
+                jdbcTemplate.execute("REINDEX INDEX CONCURRENTLY \"" + index.replace("\"", "\"\"") + "\"");
+            }
+        }
+        jdbcTemplate.execute("VACUUM (ANALYZE) vector_store");
+        maintenancePasses.increment();
+    }
+}
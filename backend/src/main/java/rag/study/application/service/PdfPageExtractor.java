@@ -0,0 +1,318 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.cos.COSName;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDResources;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.graphics.PDXObject;
+import org.apache.pdfbox.pdmodel.graphics.form.PDFormXObject;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+import org.apache.pdfbox.rendering.ImageType;
+import org.apache.pdfbox.rendering.PDFRenderer;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Extracts PDFs page range by page range on a shared fork-join pool, then replays
+ * the pages in order to the content handler as Tika-style page divs. Each range
+ * opens its own PDDocument since PDFBox documents aren't thread-safe. Only a few
+ * ranges run ahead of the handler, and they stop at the next page once the
+ * extraction fails, times out or is cancelled.
+ * <p>
+ * The text layer is always read first. Only pages with fewer than
+ * {@code ocr.pdf.min-text-chars} characters of it are rendered and sent to OCR, so a
+ * mostly digital PDF with a few scanned pages pays for OCR on those pages alone. On
+ * the other pages, embedded images such as diagrams are OCR'd through
+ * {@link EmbeddedImageOcr} and their text is appended to the page.
+ */
+@Component
+@Slf4j
+public class PdfPageExtractor {
+
+    private static final String XHTML = "http://www.w3.org/1999/xhtml";
+    // Images nested deeper than this in form XObjects are ignored
+    private static final int MAX_FORM_DEPTH = 3;
+
+    private final ForkJoinPool pool;
+    private final OcrService ocrService;
+    private final EmbeddedImageOcr embeddedImageOcr;
+    private final boolean parallel;
+    private final int minPages;
+    private final int pagesPerTask;
+    private final int minTextChars;
+    private final float ocrDpi;
+
+    private final Counter textPages;
+    private final Counter ocrPages;
+
+    public PdfPageExtractor(OcrService ocrService,
+                            EmbeddedImageOcr embeddedImageOcr,
+                            MeterRegistry meterRegistry,
+                            @Value("${extraction.pdf.parallel.enabled:true}") boolean parallel,
+                            @Value("${extraction.pdf.parallelism:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int parallelism,
+                            @Value("${extraction.pdf.min-pages:16}") int minPages,
+                            @Value("${extraction.pdf.pages-per-task:8}") int pagesPerTask,
+                            @Value("${ocr.pdf.min-text-chars:32}") int minTextChars,
+                            @Value("${ocr.pdf.dpi:300}") float ocrDpi) {
+        this.ocrService = ocrService;
+        this.embeddedImageOcr = embeddedImageOcr;
+        this.parallel = parallel;
+        this.minPages = minPages;
+        this.pagesPerTask = Math.max(1, pagesPerTask);
+        this.minTextChars = minTextChars;
+        this.ocrDpi = ocrDpi;
+        this.pool = new ForkJoinPool(parallelism, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("pdf-extract-" + thread.getPoolIndex());
+            thread.setDaemon(true);
+            return thread;
+        }, null, false);
+
+        this.textPages = Counter.builder("extraction.pdf.pages")
+            .description("PDF pages extracted, by where their text came from")
+            .tag("source", "text")
+            .register(meterRegistry);
+        this.ocrPages = Counter.builder("extraction.pdf.pages")
+            .description("PDF pages extracted, by where their text came from")
+            .tag("source", "ocr")
+            .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Extracts the PDF page by page, in parallel if it is long enough to be worth it.
+     * With parallel extraction disabled, the pages are read on the calling thread with
+     * the same selective OCR.
+     */
+    public void extract(Path file, String filename, ContentHandler handler) throws IOException, SAXException {
+        int pages;
+        try (PDDocument document = Loader.loadPDF(file.toFile())) {
+            pages = document.getNumberOfPages();
+        }
+        // Short documents aren't worth opening more than once, nor are documents read serially
+        int rangeSize = !parallel || pages < minPages ? Math.max(pages, 1) : pagesPerTask;
+        log.debug("Extracting {} pages of {} in ranges of {}", pages, filename, rangeSize);
+
+        // Ranges are submitted as the consumer catches up, so at most `parallelism` of
+        // them hold extracted pages at once however long the document is
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Deque<ForkJoinTask<List<PageText>>> ranges = new ArrayDeque<>();
+        int nextPage = 1;
+        List<PageText> current = List.of();
+        int emitted = 0;
+        try {
+            while (nextPage <= pages || !ranges.isEmpty()) {
+                while (nextPage <= pages && ranges.size() < pool.getParallelism()) {
+                    int firstPage = nextPage;
+                    int lastPage = Math.min(firstPage + rangeSize - 1, pages);
+                    ranges.addLast(startRange(() -> extractRange(file, firstPage, lastPage, cancelled)));
+                    nextPage = lastPage + 1;
+                }
+
+                // Pages go to the handler in document order; later ranges keep extracting meanwhile
+                current = ranges.getFirst().get();
+                ranges.removeFirst();
+                for (emitted = 0; emitted < current.size(); emitted++) {
+                    emitPage(handler, pageText(current.get(emitted), filename));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction of " + filename + " was interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException ioException) {
+                throw ioException;
+            }
+            throw new IOException("Failed to extract text from " + filename, e.getCause());
+        } finally {
+            // Running ranges stop at their next page; OCR of pages nobody will read is dropped
+            cancelled.set(true);
+            current.subList(emitted, current.size()).forEach(PageText::cancel);
+            for (ForkJoinTask<List<PageText>> range : ranges) {
+                range.cancel(false);
+                if (range.isCompletedNormally()) {
+                    range.join().forEach(PageText::cancel);
+                }
+            }
+        }
+    }
+
+    // Runs the range on the pool, or right here when extraction is serial
+    private ForkJoinTask<List<PageText>> startRange(Callable<List<PageText>> extraction) {
+        ForkJoinTask<List<PageText>> range = ForkJoinTask.adaptInterruptible(extraction);
+        if (parallel) {
+            pool.execute(range);
+        } else {
+            range.quietlyInvoke();
+        }
+        return range;
+    }
+
+    private List<PageText> extractRange(Path file, int firstPage, int lastPage, AtomicBoolean cancelled)
+            throws IOException {
+        try (PDDocument document = Loader.loadPDF(file.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            PDFRenderer renderer = null;
+            Map<String, CompletableFuture<String>> imagesByHash = new HashMap<>();
+            List<PageText> pages = new ArrayList<>(lastPage - firstPage + 1);
+            for (int page = firstPage; page <= lastPage; page++) {
+                if (cancelled.get() || Thread.currentThread().isInterrupted()) {
+                    pages.forEach(PageText::cancel);
+                    throw new InterruptedIOException("Extraction of pages " + firstPage + "-" + lastPage + " was cancelled");
+                }
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                String text = stripper.getText(document);
+
+                // Little or no text layer: most likely a scan. Submitting blocks while the
+                // OCR queue is full, which keeps rendered pages from piling up
+                CompletableFuture<String> ocr = null;
+                List<CompletableFuture<String>> images = new ArrayList<>();
+                if (ocrService.isAvailable() && textChars(text) < minTextChars) {
+                    if (renderer == null) {
+                        renderer = new PDFRenderer(document);
+                    }
+                    ocr = ocrPage(renderer.renderImageWithDPI(page - 1, ocrDpi, ImageType.GRAY));
+                } else if (embeddedImageOcr.isEnabled()) {
+                    PDPage pdPage = document.getPage(page - 1);
+                    collectImages(pdPage.getResources(), pdPage.getMediaBox(), images, imagesByHash, 0);
+                }
+                pages.add(new PageText(page, text, ocr, images));
+            }
+            return pages;
+        }
+    }
+
+    private void collectImages(PDResources resources, PDRectangle pageBox, List<CompletableFuture<String>> images,
+                               Map<String, CompletableFuture<String>> imagesByHash, int depth) throws IOException {
+        if (resources == null || depth > MAX_FORM_DEPTH) {
+            return;
+        }
+        for (COSName name : resources.getXObjectNames()) {
+            PDXObject xObject = resources.getXObject(name);
+            if (xObject instanceof PDImageXObject image) {
+                if (isPageScan(image, pageBox)) {
+                    // A searchable scan: its text layer already holds what OCR would find
+                    continue;
+                }
+                // Hash the stored stream so cached images are never decoded. PDFBox documents
+                // aren't thread-safe and this one closes with the range, so decode here
+                String imageHash;
+                try (InputStream raw = image.getCOSObject().createRawInputStream()) {
+                    imageHash = OcrCache.hash(raw.readAllBytes());
+                }
+                CompletableFuture<String> ocr = imagesByHash.computeIfAbsent(imageHash,
+                    hash -> embeddedImageOcr.submitDecodingNow(hash, image.getWidth(), image.getHeight(), image::getImage));
+                if (!images.contains(ocr)) {
+                    images.add(ocr);
+                }
+            } else if (xObject instanceof PDFormXObject form) {
+                collectImages(form.getResources(), pageBox, images, imagesByHash, depth + 1);
+            }
+        }
+    }
+
+    // At least ~100 DPI over the page and within 5% of its aspect ratio, either way up
+    private static boolean isPageScan(PDImageXObject image, PDRectangle pageBox) {
+        float pageWidth = pageBox.getWidth();
+        float pageHeight = pageBox.getHeight();
+        if (pageWidth <= 0 || pageHeight <= 0 || image.getHeight() <= 0
+            || Math.max(image.getWidth(), image.getHeight()) < Math.max(pageWidth, pageHeight) * 1.4f) {
+            return false;
+        }
+        float imageAspect = (float) image.getWidth() / image.getHeight();
+        float pageAspect = pageWidth / pageHeight;
+        return Math.abs(imageAspect - pageAspect) <= pageAspect * 0.05f
+            || Math.abs(1 / imageAspect - pageAspect) <= pageAspect * 0.05f;
+    }
+
+    private CompletableFuture<String> ocrPage(BufferedImage image) {
+        // Scanned pages repeat across uploads of the same course material
+        String imageHash = OcrCache.hash(image);
+        String variant = "pdf-page dpi=" + ocrDpi;
+        return ocrService.cached(imageHash, variant)
+            .map(CompletableFuture::completedFuture)
+            .orElseGet(() -> ocrService.submit(imageHash, variant, image, false));
+    }
+
+    private String pageText(PageText page, String filename) throws InterruptedException {
+        if (page.ocr() == null) {
+            textPages.increment();
+            return page.text() + embeddedImageOcr.join(page.images(), "page " + page.number() + " of " + filename);
+        }
+        try {
+            String text = page.ocr().get();
+            ocrPages.increment();
+            return text.isBlank() ? page.text() : text;
+        } catch (ExecutionException e) {
+            // Keep whatever text layer the page had rather than failing the document
+            log.warn("OCR failed for page {} of {}: {}", page.number(), filename, e.getCause().getMessage());
+            textPages.increment();
+            return page.text();
+        }
+    }
+
+    private static int textChars(String text) {
+        int count = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (!Character.isWhitespace(text.charAt(i))) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void emitPage(ContentHandler handler, String text) throws SAXException {
+        AttributesImpl attributes = new AttributesImpl();
+        attributes.addAttribute("", "class", "class", "CDATA", "page");
+        handler.startElement(XHTML, "div", "div", attributes);
+        char[] chars = text.toCharArray();
+        handler.characters(chars, 0, chars.length);
+        handler.endElement(XHTML, "div", "div");
+    }
+
+    private record PageText(int number, String text, CompletableFuture<String> ocr,
+                            List<CompletableFuture<String>> images) {
+
+        // OcrService skips queued work whose future is already done
+        void cancel() {
+            if (ocr != null) {
+                ocr.cancel(false);
+            }
+            images.forEach(image -> image.cancel(false));
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package rag.study.application.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.sl.usermodel.Placeholder;
+import org.apache.poi.xslf.usermodel.XMLSlideShow;
+import org.apache.poi.xslf.usermodel.XSLFGroupShape;
+import org.apache.poi.xslf.usermodel.XSLFNotes;
+import org.apache.poi.xslf.usermodel.XSLFPictureData;
+import org.apache.poi.xslf.usermodel.XSLFPictureShape;
+import org.apache.poi.xslf.usermodel.XSLFShape;
+import org.apache.poi.xslf.usermodel.XSLFSlide;
+import org.apache.poi.xslf.usermodel.XSLFTable;
+import org.apache.poi.xslf.usermodel.XSLFTableCell;
+import org.apache.poi.xslf.usermodel.XSLFTableRow;
+import org.apache.poi.xslf.usermodel.XSLFTextShape;
+import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Walks a PPTX deck slide by slide with POI, collecting shape, table and speaker-note
+ * text and sending embedded pictures to OCR. The pictures of the whole deck are OCR'd
+ * concurrently; each slide's text is then joined with its picture text and replayed
+ * in slide order as Tika-style slide divs.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class PptxSlideExtractor {
+
+    private static final String XHTML = "http://www.w3.org/1999/xhtml";
+
+    private final EmbeddedImageOcr embeddedImageOcr;
+
+    /**
+     * @return false if embedded image OCR is off, leaving the deck to Tika
+     */
+    public boolean extract(Path file, String filename, ContentHandler handler) throws IOException, SAXException {
+        if (!embeddedImageOcr.isEnabled()) {
+            return false;
+        }
+
+        List<SlideText> slides = new ArrayList<>();
+        try (OPCPackage pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+             XMLSlideShow show = new XMLSlideShow(pkg)) {
+            // The same logo or template picture on every slide is OCR'd once
+            Map<String, CompletableFuture<String>> picturesByHash = new HashMap<>();
+            for (XSLFSlide slide : show.getSlides()) {
+                StringBuilder text = new StringBuilder();
+                List<CompletableFuture<String>> pictures = new ArrayList<>();
+                collect(slide.getShapes(), text, pictures, picturesByHash);
+
+                XSLFNotes notes = slide.getNotes();
+                if (notes != null) {
+                    for (XSLFShape shape : notes.getShapes()) {
+                        if (shape instanceof XSLFTextShape textShape && textShape.getPlaceholder() == Placeholder.BODY) {
+                            appendLine(text, textShape.getText());
+                        }
+                    }
+                }
+                slides.add(new SlideText(slide.getSlideNumber(), text.toString(), pictures));
+            }
+            log.debug("Read {} slides with {} distinct pictures from {}", slides.size(), picturesByHash.size(), filename);
+        } catch (InvalidFormatException e) {
+            throw new IOException("Failed to open presentation " + filename, e);
+        }
+
+        try {
+            for (SlideText slide : slides) {
+                String pictureText = embeddedImageOcr.join(slide.pictures(), "slide " + slide.number() + " of " + filename);
+                emitSlide(handler, slide.text() + pictureText);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Extraction of " + filename + " was interrupted");
+        }
+        return true;
+    }
+
+    private void collect(List<XSLFShape> shapes, StringBuilder text, List<CompletableFuture<String>> pictures,
+                         Map<String, CompletableFuture<String>> picturesByHash) {
+        for (XSLFShape shape : shapes) {
+            if (shape instanceof XSLFTextShape textShape) {
+                appendLine(text, textShape.getText());
+            } else if (shape instanceof XSLFTable table) {
+                for (XSLFTableRow row : table) {
+                    List<String> cells = new ArrayList<>();
+                    for (XSLFTableCell cell : row) {
+                        cells.add(cell.getText());
+                    }
+                    appendLine(text, String.join("\t", cells));
+                }
+            } else if (shape instanceof XSLFGroupShape group) {
+                collect(group.getShapes(), text, pictures, picturesByHash);
+            } else if (shape instanceof XSLFPictureShape picture && picture.getPictureData() != null) {
+                XSLFPictureData data = picture.getPictureData();
+                byte[] bytes = data.getData();
+                CompletableFuture<String> ocr = picturesByHash.computeIfAbsent(OcrCache.hash(bytes), hash -> {
+                    Dimension size = data.getImageDimensionInPixels();
+                    return embeddedImageOcr.submit(hash, size.width, size.height,
+                        () -> ImageIO.read(new ByteArrayInputStream(bytes)));
+                });
+                if (!pictures.contains(ocr)) {
+                    pictures.add(ocr);
+                }
+            }
+        }
+    }
+
+    private static void appendLine(StringBuilder text, String line) {
+        if (line != null && !line.isBlank()) {
+            text.append(line.strip()).append('\n');
+        }
+    }
+
+    private void emitSlide(ContentHandler handler, String text) throws SAXException {
+        AttributesImpl attributes = new AttributesImpl();
+        attributes.addAttribute("", "class", "class", "CDATA", "slide-content");
+        handler.startElement(XHTML, "div", "div", attributes);
+        char[] chars = text.toCharArray();
+        handler.characters(chars, 0, chars.length);
+        handler.endElement(XHTML, "div", "div");
+    }
+
+    private record SlideText(int number, String text, List<CompletableFuture<String>> pictures) { }
+}
@@ -0,0 +1,68 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Bounded, expiring cache of question embeddings so frequently asked questions
+ * skip the OpenAI embeddings round trip.
+ */
+@Component
+@Slf4j
+public class QueryEmbeddingCache {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern TRAILING_PUNCTUATION = Pattern.compile("[\\s?!.]+$");
+
+    private final EmbeddingModel embeddingModel;
+    private final LruCache<String, float[]> cache;
+    private final Counter hits;
+    private final Counter misses;
+
+    public QueryEmbeddingCache(EmbeddingModel embeddingModel,
+                               MeterRegistry meterRegistry,
+                               @Value("${rag.query-cache.max-entries:1000}") int maxEntries,
+                               @Value("${rag.query-cache.ttl-minutes:60}") long ttlMinutes) {
+        this.embeddingModel = embeddingModel;
+        this.cache = new LruCache<>(maxEntries, Duration.ofMinutes(ttlMinutes));
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+    }
+
+    public float[] embed(String question) {
+        String normalized = normalize(question);
+
+        float[] embedding = cache.get(normalized);
+        if (embedding != null) {
+            hits.increment();
+            log.debug("Query embedding cache hit for: {}", normalized);
+            return embedding;
+        }
+
+        misses.increment();
+        // The normalized form is only the cache key; case and punctuation can matter to retrieval
+        embedding = embeddingModel.embed(question);
+        cache.put(normalized, embedding);
+        return embedding;
+    }
+
+    static String normalize(String question) {
+        String collapsed = WHITESPACE.matcher(question.trim()).replaceAll(" ");
+        return TRAILING_PUNCTUATION.matcher(collapsed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rag.query.embedding.cache.lookups")
+            .description("Question embedding cache lookups by result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
@@ -3,15 +3,18 @@ package rag.study.application.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
 import org.springframework.ai.chat.prompt.Prompt;
 import org.springframework.ai.chat.prompt.PromptTemplate;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,10 +22,13 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RAGQueryService {
 
-    private final VectorStore vectorStore;
+    private final VectorStoreService vectorStoreService;
+    private final QueryEmbeddingCache queryEmbeddingCache;
+    private final SemanticAnswerCache semanticAnswerCache;
     private final ChatClient.Builder chatClientBuilder;
 
     private static final int TOP_K_RESULTS = 5;
+    private static final double SIMILARITY_THRESHOLD = 0.3; // Accept results with >30% similarity (balanced approach)
 
     private static final String PROMPT_TEMPLATE = """
             You are a helpful study assistant. Answer the question based on the context provided from the user's study documents.
@@ -41,28 +47,27 @@ public class RAGQueryService {
             Answer:
             """;
 
-    public String queryDocuments(String question) {
-        log.info("Processing query: {}", question);
+    private static final String NO_RESULTS_ANSWER = "I couldn't find any relevant information in your uploaded documents to answer this question. Please try uploading more documents or rephrasing your question.";
 
-        // Step 1: Search for similar documents in vector store
-        List<Document> similarDocuments = searchSimilarDocuments(question);
+    public RagResult queryDocuments(String question) {
+        log.info("Processing query: {}", question);
 
-        if (similarDocuments.isEmpty()) {
-            log.warn("No similar documents found for query: {}", question);
-            return "I couldn't find any relevant information in your uploaded documents to answer this question. Please try uploading more documents or rephrasing your question.";
+        // Step 0: Reuse the answer to a near-identical earlier question if we have one
+        Optional<RagResult> cached = lookupCachedAnswer(question);
+        if (cached.isPresent()) {
+            return cached.get();
         }
 
-        log.info("Found {} similar document chunks", similarDocuments.size());
+        // Step 1-2: Retrieve similar chunks once and build context + sources from them
+        RagResult retrieval = retrieve(question);
 
-        // Step 2: Build context from retrieved documents
-        String context = buildContext(similarDocuments);
+        if (!retrieval.hasContext()) {
+            log.warn("No similar documents found for query: {}", question);
+            return retrieval.withAnswer(NO_RESULTS_ANSWER);
+        }
 
         // Step 3: Create prompt with context and question
-        PromptTemplate promptTemplate = new PromptTemplate(PROMPT_TEMPLATE);
-        Prompt prompt = promptTemplate.create(Map.of(
-            "context", context,
-            "question", question
-        ));
+        Prompt prompt = buildPrompt(retrieval);
 
         // Step 4: Send to OpenAI and get response
         ChatClient chatClient = chatClientBuilder.build();
@@ -71,20 +76,97 @@ public class RAGQueryService {
             .content();
 
         log.info("Generated answer for query: {}", question);
-        return answer;
+        RagResult result = retrieval.withAnswer(answer);
+        cacheAnswer(result);
+        return result;
+    }
+
+    public Optional<RagResult> lookupCachedAnswer(String question) {
+        try {
+            return semanticAnswerCache.lookup(question, queryEmbeddingCache.embed(question));
+        } catch (Exception e) {
+            log.warn("Semantic answer cache lookup failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public Flux<ChatResponse> streamAnswer(RagResult retrieval) {
+        if (retrieval.getAnswer() != null) {
+            // Answer came from the semantic cache
+            return Flux.just(textResponse(retrieval.getAnswer()));
+        }
+
+        if (!retrieval.hasContext()) {
+            log.warn("No similar documents found for query: {}", retrieval.getQuestion());
+            return Flux.just(textResponse(NO_RESULTS_ANSWER));
+        }
+
+        // Stream token deltas from OpenAI instead of waiting for the full completion
+        StringBuilder answer = new StringBuilder();
+        ChatClient chatClient = chatClientBuilder.build();
+        return chatClient.prompt(buildPrompt(retrieval))
+            .stream()
+            .chatResponse()
+            .doOnNext(chunk -> {
+                if (chunk.getResult() != null && chunk.getResult().getOutput().getText() != null) {
+                    answer.append(chunk.getResult().getOutput().getText());
+                }
+            })
+            .doOnComplete(() -> cacheAnswer(retrieval.withAnswer(answer.toString())));
+    }
+
+    public RagResult retrieve(String question) {
+        // Step 1: Search for similar documents in vector store
+        List<Document> similarDocuments = searchSimilarDocuments(question);
+        log.info("Found {} similar document chunks", similarDocuments.size());
+
+        List<Double> scores = similarDocuments.stream()
+            .map(Document::getScore)
+            .collect(Collectors.toList());
+
+        // Step 2: Build context and sources from the same retrieved documents
+        return new RagResult(
+            question,
+            similarDocuments,
+            scores,
+            buildContext(similarDocuments),
+            extractSources(similarDocuments),
+            null
+        );
+    }
+
+    private void cacheAnswer(RagResult result) {
+        try {
+            // Question embedding is already in the query embedding cache at this point
+            semanticAnswerCache.put(queryEmbeddingCache.embed(result.getQuestion()), result);
+        } catch (Exception e) {
+            log.warn("Failed to cache answer: {}", e.getMessage());
+        }
+    }
+
+    private ChatResponse textResponse(String text) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
+    }
+
+    private Prompt buildPrompt(RagResult retrieval) {
+        PromptTemplate promptTemplate = new PromptTemplate(PROMPT_TEMPLATE);
+        return promptTemplate.create(Map.of(
+            "context", retrieval.getContext(),
+            "question", retrieval.getQuestion()
+        ));
     }
 
     private List<Document> searchSimilarDocuments(String query) {
         try {
-            // Create search request with top K results
-            SearchRequest searchRequest = SearchRequest.builder()
-                .query(query)
-                .topK(TOP_K_RESULTS)
-                .similarityThreshold(0.3) // Accept results with >30% similarity (balanced approach)
-                .build();
-
-            // Search vector store
-            List<Document> results = vectorStore.similaritySearch(searchRequest);
+            // Reuse the question embedding when the same question was asked recently
+            float[] queryEmbedding = queryEmbeddingCache.embed(query);
+
+            // Search vector store with top K results
+            List<Document> results = vectorStoreService.similaritySearch(
+                queryEmbedding,
+                TOP_K_RESULTS,
+                SIMILARITY_THRESHOLD
+            );
             log.info("Vector search returned {} documents for query: {}", results.size(), query);
             return results;
         } catch (Exception e) {
@@ -118,11 +200,8 @@ public class RAGQueryService {
         return contextBuilder.toString().trim();
     }
 
-    public List<String> getSources(String question) {
-        // Helper method to get just the sources without generating an answer
-        List<Document> similarDocuments = searchSimilarDocuments(question);
-
-        return similarDocuments.stream()
+    private List<String> extractSources(List<Document> documents) {
+        return documents.stream()
             .map(doc -> {
                 Map<String, Object> metadata = doc.getMetadata();
                 return metadata.getOrDefault("filename", "Unknown").toString();
@@ -0,0 +1,31 @@
+package rag.study.application.service;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.With;
+import org.springframework.ai.document.Document;
+
+import java.util.List;
+
+/**
+ * Carries everything produced by one pass through the RAG pipeline: the retrieved
+ * chunks and their similarity scores, the context built from them, the distinct
+ * source filenames and (once generation has run) the answer.
+ */
+@Getter
+@AllArgsConstructor
+public class RagResult {
+
+    private final String question;
+    private final List<Document> chunks;
+    private final List<Double> scores;
+    private final String context;
+    private final List<String> sources;
+
+    @With
+    private final String answer;
+
+    public boolean hasContext() {
+        return !chunks.isEmpty();
+    }
+}
@@ -0,0 +1,36 @@
+package rag.study.application.service;
+
+/**
+ * Emits each section as one chunk, handing sections over {@code maxSize} characters
+ * to a fallback chunker. The fallback must not keep state between calls, since a
+ * section's tail can end up emitted here instead.
+ */
+class SectionChunker implements Chunker {
+
+    private final int maxSize;
+    private final Chunker fallback;
+
+    SectionChunker(int maxSize, Chunker fallback) {
+        this.maxSize = maxSize;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public int chunk(CharSequence text, int start, boolean endOfInput, SpanConsumer consumer) {
+        int length = text.length();
+        if (length - start > maxSize) {
+            return fallback.chunk(text, start, endOfInput, consumer);
+        }
+        if (!endOfInput) {
+            // Wait for the section to end
+            return start;
+        }
+        Chunker.emitTrimmed(text, start, length, consumer);
+        return length;
+    }
+
+    @Override
+    public boolean chunksPerSection() {
+        return true;
+    }
+}
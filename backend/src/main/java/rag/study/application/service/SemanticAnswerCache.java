@@ -0,0 +1,224 @@
+package rag.study.application.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Caches generated answers by question embedding. A new question whose embedding is
+ * close enough to a cached one gets the cached answer without calling the chat model.
+ * Entries are dropped when a document they cite is deleted or re-uploaded, or when it
+ * finishes indexing. Answers citing a document that is still being indexed aren't
+ * cached at all, since they were built from part of it.
+ * <p>
+ * Lookups scan an immutable snapshot of the entries without holding the lock, so
+ * concurrent questions don't queue behind each other's similarity scan.
+ */
+@Component
+@Slf4j
+public class SemanticAnswerCache {
+
+    private final boolean enabled;
+    private final double similarityThreshold;
+    private final long ttlNanos;
+    // Guarded by this; LRU order and eviction
+    private final Map<Long, Entry> entries;
+    // Copy of entries' values, replaced whenever entries change
+    private volatile Entry[] snapshot = new Entry[0];
+    // Guarded by this; documents whose chunks are still being stored
+    private final Set<Long> indexingDocuments = new HashSet<>();
+    private final Counter hits;
+    private final Counter misses;
+
+    private long nextId;
+
+    public SemanticAnswerCache(MeterRegistry meterRegistry,
+                               @Value("${rag.answer-cache.enabled:true}") boolean enabled,
+                               @Value("${rag.answer-cache.similarity-threshold:0.95}") double similarityThreshold,
+                               @Value("${rag.answer-cache.max-entries:2000}") int maxEntries,
+                               @Value("${rag.answer-cache.ttl-minutes:1440}") long ttlMinutes) {
+        this.enabled = enabled;
+        this.similarityThreshold = similarityThreshold;
+        this.ttlNanos = Duration.ofMinutes(ttlMinutes).toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        Gauge.builder("rag.answer.cache.size", this, SemanticAnswerCache::size)
+            .description("Entries in the semantic answer cache")
+            .register(meterRegistry);
+    }
+
+    public Optional<RagResult> lookup(String question, float[] questionEmbedding) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        float[] query = unitVector(questionEmbedding);
+        Entry best = null;
+        double bestSimilarity = similarityThreshold;
+        long now = System.nanoTime();
+
+        // Expired entries are skipped here and pruned on the next put
+        for (Entry entry : snapshot) {
+            if (now - entry.createdAt > ttlNanos) {
+                continue;
+            }
+            double similarity = dot(query, entry.embedding);
+            if (similarity >= bestSimilarity) {
+                best = entry;
+                bestSimilarity = similarity;
+            }
+        }
+        if (best != null) {
+            synchronized (this) {
+                // Touch for LRU ordering
+                entries.get(best.id);
+            }
+        }
+
+        if (best == null) {
+            misses.increment();
+            return Optional.empty();
+        }
+
+        hits.increment();
+        log.info("Semantic answer cache hit (similarity {}) for query: {}", String.format("%.3f", bestSimilarity), question);
+        return Optional.of(new RagResult(question, List.of(), List.of(), null, best.sources, best.answer));
+    }
+
+    public void put(float[] questionEmbedding, RagResult result) {
+        // Only cache answers grounded in retrieved chunks; "nothing found" goes stale on the next upload
+        if (!enabled || !result.hasContext() || result.getAnswer() == null) {
+            return;
+        }
+
+        Set<Long> documentIds = result.getChunks().stream()
+            .map(Document::getMetadata)
+            .map(metadata -> metadata.get("document_id"))
+            .filter(Number.class::isInstance)
+            .map(id -> ((Number) id).longValue())
+            .collect(Collectors.toSet());
+
+        float[] embedding = unitVector(questionEmbedding);
+        long now = System.nanoTime();
+        synchronized (this) {
+            if (documentIds.stream().anyMatch(indexingDocuments::contains)) {
+                return;
+            }
+            entries.values().removeIf(entry -> now - entry.createdAt > ttlNanos);
+            long id = nextId++;
+            entries.put(id, new Entry(id, embedding, result.getAnswer(),
+                List.copyOf(result.getSources()), documentIds, now));
+            refreshSnapshot();
+        }
+    }
+
+    /**
+     * Marks a document as being indexed; answers citing it aren't cached until
+     * {@link #indexingFinished} is called for it.
+     */
+    public synchronized void indexingStarted(Long documentId) {
+        indexingDocuments.add(documentId);
+    }
+
+    /**
+     * Drops answers that cited the document while it was partially indexed and lets
+     * new ones be cached.
+     */
+    public void indexingFinished(Long documentId) {
+        synchronized (this) {
+            indexingDocuments.remove(documentId);
+        }
+        invalidateDocuments(List.of(documentId));
+    }
+
+    public void invalidateDocuments(Collection<Long> documentIds) {
+        if (documentIds.isEmpty()) {
+            return;
+        }
+
+        int removed = 0;
+        synchronized (this) {
+            Iterator<Entry> iterator = entries.values().iterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                if (documentIds.stream().anyMatch(entry.documentIds::contains)) {
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                refreshSnapshot();
+            }
+        }
+
+        if (removed > 0) {
+            log.info("Invalidated {} cached answers citing documents {}", removed, documentIds);
+        }
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    // Caller holds the lock
+    private void refreshSnapshot() {
+        snapshot = entries.values().toArray(Entry[]::new);
+    }
+
+    private static float[] unitVector(float[] vector) {
+        double norm = 0;
+        for (float v : vector) {
+            norm += v * v;
+        }
+        norm = Math.sqrt(norm);
+
+        float[] unit = new float[vector.length];
+        if (norm == 0) {
+            return unit;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            unit[i] = (float) (vector[i] / norm);
+        }
+        return unit;
+    }
+
+    private static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rag.answer.cache.lookups")
+            .description("Semantic answer cache lookups by result")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+
+    private record Entry(long id, float[] embedding, String answer, List<String> sources,
+                         Set<Long> documentIds, long createdAt) {
+    }
+}
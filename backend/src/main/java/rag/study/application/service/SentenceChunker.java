@@ -0,0 +1,66 @@
+package rag.study.application.service;
+
+/**
+ * Cuts text into non-overlapping chunks of at most {@code maxSize} characters, ending
+ * each at the last paragraph break in its second half, else the last sentence end in
+ * its last three quarters, else the last whitespace.
+ */
+class SentenceChunker implements Chunker {
+
+    private final int maxSize;
+
+    SentenceChunker(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    @Override
+    public int chunk(CharSequence text, int start, boolean endOfInput, SpanConsumer consumer) {
+        int length = text.length();
+
+        while (endOfInput ? start < length : length - start > maxSize) {
+            int end = Math.min(start + maxSize, length);
+            if (end < length) {
+                end = boundary(text, start, end);
+            }
+
+            Chunker.emitTrimmed(text, start, end, consumer);
+            if (end >= length) {
+                return length;
+            }
+            start = end;
+        }
+        return start;
+    }
+
+    private int boundary(CharSequence text, int start, int end) {
+        int paragraphFloor = start + maxSize / 2;
+        int sentenceFloor = start + maxSize / 4;
+        int sentenceEnd = -1;
+        int whitespace = -1;
+
+        for (int i = end; i > start; i--) {
+            if (i <= sentenceFloor && whitespace > 0) {
+                break;
+            }
+            char c = text.charAt(i);
+            if (c != '\n' && c != ' ' && c != '\t' && c != '\r') {
+                continue;
+            }
+            char previous = text.charAt(i - 1);
+            if (c == '\n' && previous == '\n' && i > paragraphFloor) {
+                return i;
+            }
+            if (sentenceEnd < 0 && i > sentenceFloor && (previous == '.' || previous == '?' || previous == '!')) {
+                sentenceEnd = i;
+            }
+            if (whitespace < 0) {
+                whitespace = i;
+            }
+        }
+
+        if (sentenceEnd > 0) {
+            return sentenceEnd;
+        }
+        return whitespace > 0 ? whitespace : end;
+    }
+}
@@ -0,0 +1,26 @@
+package rag.study.application.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Chunks of up to {@code chunking.sentence.max-size} characters that end at a paragraph
+ * or sentence boundary where one is close enough. Chunks don't overlap, since they
+ * no longer cut sentences in half.
+ */
+@Component
+public class SentenceChunkingStrategy implements ChunkingStrategy {
+
+    @Value("${chunking.sentence.max-size:1000}")
+    private int maxSize;
+
+    @Override
+    public String getName() {
+        return "sentence";
+    }
+
+    @Override
+    public Chunker newChunker() {
+        return new SentenceChunker(maxSize);
+    }
+}
@@ -0,0 +1,32 @@
+package rag.study.application.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * One chunk per slide or page, with no overlap into its neighbours. Text without
+ * sections, such as OCR output of an image, becomes a single chunk. Sections longer
+ * than {@code chunking.slide.max-size} characters fall back to fixed character windows.
+ */
+@Component
+public class SlideChunkingStrategy implements ChunkingStrategy {
+
+    @Value("${chunking.slide.max-size:2000}")
+    private int maxSize;
+
+    @Value("${chunking.characters.size:500}")
+    private int chunkSize;
+
+    @Value("${chunking.characters.overlap:50}")
+    private int chunkOverlap;
+
+    @Override
+    public String getName() {
+        return "slide";
+    }
+
+    @Override
+    public Chunker newChunker() {
+        return new SectionChunker(maxSize, new TextChunker(chunkSize, chunkOverlap));
+    }
+}
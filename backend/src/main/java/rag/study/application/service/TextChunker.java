@@ -0,0 +1,58 @@
+package rag.study.application.service;
+
+/**
+ * Cuts text into overlapping windows of at most {@code chunkSize} characters that break
+ * at word boundaries. Works purely on offsets into the source {@link CharSequence}:
+ * boundary search and whitespace trimming are index arithmetic, and no String is
+ * created unless the caller asks for one.
+ */
+class TextChunker implements Chunker {
+
+    private final int chunkSize;
+    private final int overlap;
+
+    TextChunker(int chunkSize, int overlap) {
+        this.chunkSize = chunkSize;
+        this.overlap = overlap;
+    }
+
+    @Override
+    public int chunk(CharSequence text, int start, boolean endOfInput, SpanConsumer consumer) {
+        int length = text.length();
+
+        while (endOfInput ? start < length : length - start > chunkSize) {
+            int end = Math.min(start + chunkSize, length);
+
+            // Try to break at word boundary if not at the end
+            if (end < length) {
+                int lastSpace = lastSpace(text, start, end);
+                if (lastSpace > start) {
+                    end = lastSpace;
+                }
+            }
+
+            Chunker.emitTrimmed(text, start, end, consumer);
+
+            // Stop once a chunk reaches the end; stepping back by the overlap from
+            // there would only emit ever-shorter copies of the tail
+            if (end >= length) {
+                return length;
+            }
+
+            // Move start forward, accounting for overlap
+            // Ensure we always move forward by at least 1 character
+            start = Math.max(end - overlap, start + 1);
+        }
+        return start;
+    }
+
+    // Same result as String.lastIndexOf(' ', end) restricted to (start, end]
+    private static int lastSpace(CharSequence text, int start, int end) {
+        for (int i = end; i > start; i--) {
+            if (text.charAt(i) == ' ') {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,77 @@
+package rag.study.application.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.tika.Tika;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.fork.ForkParser;
+import org.apache.tika.io.TikaInputStream;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Parses documents in a pool of child JVMs with Tika's ForkParser, so a hostile or
+ * huge document can only exhaust a child's heap, not the service's. SAX events are
+ * streamed back to the caller's handler. A child that crashes or exceeds the parse
+ * timeout exits and is replaced by a fresh one on the next parse; children are also
+ * recycled after a fixed number of documents.
+ */
+@Component
+@Slf4j
+public class TikaForkPool {
+
+    private final ForkParser forkParser;
+
+    public TikaForkPool(Tika tika,
+                        @Value("${extraction.fork.enabled:false}") boolean enabled,
+                        @Value("${extraction.fork.pool-size:2}") int poolSize,
+                        @Value("${extraction.fork.java-command:java -Xmx512m -XX:+ExitOnOutOfMemoryError}") String javaCommand,
+                        @Value("${extraction.fork.max-files-per-child:100}") int maxFilesPerChild,
+                        @Value("${extraction.timeout-seconds:120}") long timeoutSeconds) {
+        if (!enabled) {
+            this.forkParser = null;
+            return;
+        }
+
+        // The child gets the same trimmed parser set; classes are served from this JVM
+        ForkParser parser = new ForkParser(TikaForkPool.class.getClassLoader(), tika.getParser());
+        parser.setPoolSize(poolSize);
+        parser.setJavaCommand(List.of(javaCommand.trim().split("\\s+")));
+        parser.setMaxFilesProcessedPerServer(maxFilesPerChild);
+        parser.setServerParseTimeoutMillis(timeoutSeconds * 1000);
+        this.forkParser = parser;
+        log.info("Parsing documents in up to {} child JVMs ({})", poolSize, javaCommand);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (forkParser != null) {
+            forkParser.close();
+        }
+    }
+
+    public boolean isEnabled() {
+        return forkParser != null;
+    }
+
+    public void parse(Path file, String filename, ContentHandler handler) throws IOException {
+        try (InputStream inputStream = TikaInputStream.get(file)) {
+            // BodyContentHandler drops <head> content such as the title, like the in-process parse
+            forkParser.parse(inputStream, new BodyContentHandler(handler), new Metadata(), new ParseContext());
+        } catch (TikaException | SAXException e) {
+            // Includes a child that ran out of memory, crashed or timed out; ForkParser discards it
+            log.error("Forked parse failed for document: {}", filename, e);
+            throw new IOException("Failed to extract text from document", e);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package rag.study.application.service;
+
+import java.util.Arrays;
+
+/**
+ * Cuts text into overlapping chunks of at most {@code maxTokens} tokens that break at
+ * word boundaries. The text is scanned in pieces of leading whitespace plus one word,
+ * and each piece is counted on its own; the BPE pre-tokenizer rarely merges across
+ * such boundaries, so the sum is the chunk's token count or a slight overestimate.
+ * <p>
+ * Pieces counted for the chunk in progress are remembered between calls, relative to
+ * its start, so SAX events arriving a few characters at a time don't rescan the window.
+ */
+class TokenChunker implements Chunker {
+
+    // A run without whitespace this long is counted before its end arrives, so one
+    // giant "word" can't hold the whole document in the window
+    private static final int MAX_PIECE_CHARS_PER_TOKEN = 8;
+
+    private final TokenCounter tokenCounter;
+    private final int maxTokens;
+    private final int overlapTokens;
+    private final int maxPieceChars;
+
+    // Pieces of the chunk in progress: end offset relative to the chunk start, and tokens
+    private int[] pieceEnds = new int[64];
+    private int[] pieceTokens = new int[64];
+    private int pieceCount;
+    private int scannedTokens;
+
+    TokenChunker(TokenCounter tokenCounter, int maxTokens, int overlapTokens) {
+        if (maxTokens < 1 || overlapTokens < 0 || overlapTokens >= maxTokens) {
+            throw new IllegalArgumentException("Invalid token chunk size " + maxTokens + " / overlap " + overlapTokens);
+        }
+        this.tokenCounter = tokenCounter;
+        this.maxTokens = maxTokens;
+        this.overlapTokens = overlapTokens;
+        this.maxPieceChars = maxTokens * MAX_PIECE_CHARS_PER_TOKEN;
+    }
+
+    @Override
+    public int chunk(CharSequence text, int start, boolean endOfInput, SpanConsumer consumer) {
+        int length = text.length();
+
+        while (start < length) {
+            if (pieceCount == 0) {
+                // Chunks are emitted trimmed, and a word can take more tokens without its
+                // leading space, so count the first one as it will be emitted
+                while (start < length && text.charAt(start) <= ' ') {
+                    start++;
+                }
+                if (start == length) {
+                    break;
+                }
+            }
+            // Extend the chunk piece by piece until the next one would overflow it
+            int position = start + (pieceCount == 0 ? 0 : pieceEnds[pieceCount - 1]);
+            int overflowEnd = -1;
+            while (position < length) {
+                int pieceEnd = nextBoundary(text, position, length);
+                if (pieceEnd == length && !endOfInput && pieceEnd - position <= maxPieceChars) {
+                    // The last word may still be growing
+                    break;
+                }
+                int tokens = tokenCounter.count(text, position, pieceEnd);
+                if (scannedTokens + tokens > maxTokens) {
+                    overflowEnd = pieceEnd;
+                    break;
+                }
+                addPiece(pieceEnd - start, tokens);
+                position = pieceEnd;
+            }
+
+            if (overflowEnd < 0 && !(endOfInput && position >= length)) {
+                return start;
+            }
+
+            if (pieceCount == 0) {
+                // A single word over the budget: cut it wherever the budget runs out
+                int end = hardCut(text, start, overflowEnd);
+                Chunker.emitTrimmed(text, start, end, consumer);
+                reset();
+                start = end;
+                continue;
+            }
+
+            int end = start + pieceEnds[pieceCount - 1];
+            Chunker.emitTrimmed(text, start, end, consumer);
+            if (end >= length) {
+                reset();
+                return length;
+            }
+
+            // Step back over whole trailing pieces worth at most overlapTokens,
+            // always dropping the first piece so the next chunk moves forward
+            int first = pieceCount;
+            int overlap = 0;
+            while (first > 1 && overlap + pieceTokens[first - 1] <= overlapTokens) {
+                overlap += pieceTokens[first - 1];
+                first--;
+            }
+            int next = start + pieceEnds[first - 1];
+            reset();
+            start = next;
+        }
+        return start;
+    }
+
+    // Longest prefix of [start, end) within the budget, at least one character
+    private int hardCut(CharSequence text, int start, int end) {
+        int low = start + 1;
+        int high = end;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (tokenCounter.count(text, start, mid) <= maxTokens) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // Don't split a surrogate pair
+        if (low < end && Character.isHighSurrogate(text.charAt(low - 1))) {
+            low++;
+        }
+        return low;
+    }
+
+    // End of the piece starting at position: leading whitespace, then one word
+    private static int nextBoundary(CharSequence text, int position, int length) {
+        int i = position;
+        while (i < length && text.charAt(i) <= ' ') {
+            i++;
+        }
+        while (i < length && text.charAt(i) > ' ') {
+            i++;
+        }
+        return i;
+    }
+
+    private void addPiece(int end, int tokens) {
+        if (pieceCount == pieceEnds.length) {
+            pieceEnds = Arrays.copyOf(pieceEnds, pieceCount * 2);
+            pieceTokens = Arrays.copyOf(pieceTokens, pieceCount * 2);
+        }
+        pieceEnds[pieceCount] = end;
+        pieceTokens[pieceCount] = tokens;
+        pieceCount++;
+        scannedTokens += tokens;
+    }
+
+    private void reset() {
+        pieceCount = 0;
+        scannedTokens = 0;
+    }
+}
@@ -0,0 +1,30 @@
+package rag.study.application.service;
+
+import com.knuddels.jtokkit.Encodings;
+import com.knuddels.jtokkit.api.Encoding;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Counts tokens offline with the BPE encoding of the embedding model
+ * (cl100k_base for text-embedding-3-*). Thread-safe.
+ */
+@Component
+public class TokenCounter {
+
+    private final Encoding encoding;
+
+    public TokenCounter(@Value("${chunking.tokens.encoding:cl100k_base}") String encodingName) {
+        this.encoding = Encodings.newLazyEncodingRegistry()
+            .getEncoding(encodingName)
+            .orElseThrow(() -> new IllegalArgumentException("Unknown token encoding: " + encodingName));
+    }
+
+    public int count(String text) {
+        return text == null || text.isEmpty() ? 0 : encoding.countTokens(text);
+    }
+
+    public int count(CharSequence text, int start, int end) {
+        return start >= end ? 0 : encoding.countTokens(text.subSequence(start, end).toString());
+    }
+}
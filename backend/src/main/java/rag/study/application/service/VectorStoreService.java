@@ -1,95 +1,203 @@
 package rag.study.application.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pgvector.PGvector;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class VectorStoreService {
 
-    private final VectorStore vectorStore;
+    private final EmbeddingModel embeddingModel;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final EmbeddingCache embeddingCache;
+    private final TokenCounter tokenCounter;
+    private final ChunkingStrategies chunkingStrategies;
+    private final PlatformTransactionManager transactionManager;
+
+    @Value("${vector-store.delete.batch-size:1000}")
+    private int deleteBatchSize;
+
+    // Same layout Spring AI's PgVectorStore writes, so similarity search keeps working on these rows
+    private static final String INSERT_SQL =
+        "INSERT INTO vector_store (id, content, metadata, embedding, document_id) VALUES (?, ?, ?::jsonb, ?, ?)";
+    private static final String SEARCH_SQL =
+        "SELECT id, content, metadata::text AS metadata, embedding <=> ? AS distance FROM vector_store "
+            + "WHERE embedding <=> ? < ? ORDER BY distance LIMIT ?";
+    // document_id mirrors the metadata key as a real column (V8), with a btree index and a cascading foreign key
+    private static final String DELETE_BATCH_SQL =
+        "DELETE FROM vector_store WHERE id IN (SELECT id FROM vector_store WHERE document_id = ? LIMIT ?)";
+    private static final String REASSIGN_SQL =
+        "UPDATE vector_store SET document_id = ?, "
+            + "metadata = metadata || jsonb_build_object('document_id', ?::bigint, 'filename', ?::text) "
+            + "WHERE document_id = ?";
+    private static final TypeReference<HashMap<String, Object>> METADATA_TYPE = new TypeReference<>() { };
+
+    public ChunkingContentHandler createChunkingHandler(String fileType, Consumer<ChunkingContentHandler.Chunk> onChunk) {
+        ChunkingStrategy strategy = chunkingStrategies.forFileType(fileType);
+        log.debug("Chunking {} content with the {} strategy", fileType, strategy.getName());
+        return new ChunkingContentHandler(strategy.newChunker(), onChunk);
+    }
 
-    private static final int CHUNK_SIZE = 500;
-    private static final int CHUNK_OVERLAP = 50;
+    public Document createChunk(Long documentId, String filename, int chunkIndex, ChunkingContentHandler.Chunk chunk) {
+        // Create metadata for this chunk; the total isn't known while the document is still streaming in.
+        // The exact token count lets later stages pack embedding batches and prompts without estimating
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("document_id", documentId);
+        metadata.put("filename", filename);
+        metadata.put("chunk_index", chunkIndex);
+        metadata.put("token_count", tokenCounter.count(chunk.text()));
+        if (chunk.sectionType() != null) {
+            // page_start/page_end for PDFs, slide_start/slide_end for decks
+            metadata.put(chunk.sectionType() + "_start", chunk.firstSection());
+            metadata.put(chunk.sectionType() + "_end", chunk.lastSection());
+        }
 
-    public void storeDocumentEmbeddings(Long documentId, String filename, String content) {
-        log.info("Starting to create embeddings for document ID: {}", documentId);
+        // Create Spring AI Document (not our entity)
+        return new Document(chunk.text(), metadata);
+    }
 
-        // Split content into chunks
-        List<String> chunks = splitIntoChunks(content, CHUNK_SIZE, CHUNK_OVERLAP);
-        log.info("Split document into {} chunks", chunks.size());
+    public List<float[]> embed(List<Document> documents) {
+        if (documents.isEmpty()) {
+            return List.of();
+        }
 
-        // Create Document objects for each chunk with metadata
-        List<Document> documents = new ArrayList<>();
-        for (int i = 0; i < chunks.size(); i++) {
-            String chunk = chunks.get(i);
+        List<String> keys = documents.stream()
+            .map(doc -> embeddingCache.key(doc.getText()))
+            .toList();
+        List<float[]> embeddings = new ArrayList<>(embeddingCache.getAll(keys));
 
-            // Create metadata for this chunk
-            Map<String, Object> metadata = Map.of(
-                "document_id", documentId,
-                "filename", filename,
-                "chunk_index", i,
-                "total_chunks", chunks.size()
-            );
+        // Only send cache misses to OpenAI, once per distinct text
+        Map<String, String> missTexts = new LinkedHashMap<>();
+        for (int i = 0; i < documents.size(); i++) {
+            if (embeddings.get(i) == null) {
+                missTexts.putIfAbsent(keys.get(i), documents.get(i).getText());
+            }
+        }
 
-            // Create Spring AI Document (not our entity)
-            Document doc = new Document(chunk, metadata);
-            documents.add(doc);
+        if (!missTexts.isEmpty()) {
+            List<String> missKeys = new ArrayList<>(missTexts.keySet());
+            List<float[]> created = embeddingModel.embed(new ArrayList<>(missTexts.values()));
+            embeddingCache.putAll(missKeys, created);
+
+            Map<String, float[]> createdByKey = new HashMap<>();
+            for (int i = 0; i < missKeys.size(); i++) {
+                createdByKey.put(missKeys.get(i), created.get(i));
+            }
+            for (int i = 0; i < embeddings.size(); i++) {
+                if (embeddings.get(i) == null) {
+                    embeddings.set(i, createdByKey.get(keys.get(i)));
+                }
+            }
         }
 
-        // Store all documents in vector store
-        // Spring AI will automatically create embeddings using OpenAI
-        vectorStore.add(documents);
-        log.info("Successfully stored {} embeddings for document ID: {}", documents.size(), documentId);
+        log.debug("Created {} embeddings ({} from cache)", embeddings.size(), documents.size() - missTexts.size());
+        return embeddings;
     }
 
-    private List<String> splitIntoChunks(String content, int chunkSize, int overlap) {
-        List<String> chunks = new ArrayList<>();
+    public List<Document> similaritySearch(float[] embedding, int topK, double similarityThreshold) {
+        PGvector queryVector = new PGvector(embedding);
+
+        // Same query shape as PgVectorStore, so the HNSW index serves the ORDER BY ... LIMIT
+        return jdbcTemplate.query(SEARCH_SQL,
+            (rs, rowNum) -> {
+                double distance = rs.getDouble("distance");
+                Map<String, Object> metadata = fromJson(rs.getString("metadata"));
+                metadata.put("distance", distance);
+                return Document.builder()
+                    .id(rs.getString("id"))
+                    .text(rs.getString("content"))
+                    .metadata(metadata)
+                    .score(1.0 - distance)
+                    .build();
+            },
+            queryVector, queryVector, 1.0 - similarityThreshold, topK);
+    }
 
-        if (content == null || content.isEmpty()) {
-            return chunks;
+    public void store(List<Document> documents, List<float[]> embeddings) {
+        if (documents.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Expected " + documents.size()
+                + " embeddings but got " + embeddings.size());
         }
 
-        int start = 0;
-        int previousStart = -1;
-
-        while (start < content.length()) {
-            // Prevent infinite loops - ensure we're making progress
-            if (start == previousStart) {
-                log.warn("Chunking stuck at position {}. Breaking to prevent infinite loop.", start);
-                break;
-            }
-            previousStart = start;
+        List<Object[]> rows = new ArrayList<>(documents.size());
+        for (int i = 0; i < documents.size(); i++) {
+            Document doc = documents.get(i);
+            rows.add(new Object[] {
+                UUID.fromString(doc.getId()),
+                doc.getText(),
+                toJson(doc.getMetadata()),
+                new PGvector(embeddings.get(i)),
+                doc.getMetadata().get("document_id")
+            });
+        }
 
-            int end = Math.min(start + chunkSize, content.length());
+        jdbcTemplate.batchUpdate(INSERT_SQL, rows);
+        log.debug("Inserted {} rows into vector_store", rows.size());
+    }
 
-            // Try to break at word boundary if not at the end
-            if (end < content.length()) {
-                int lastSpace = content.lastIndexOf(' ', end);
-                if (lastSpace > start) {
-                    end = lastSpace;
-                }
-            }
+    /**
+     * Deletes every chunk of a document in batches so a large document doesn't hold row
+     * locks or build up one huge transaction. Called outside a transaction, each batch
+     * commits on its own; inside one, the batches join it.
+     */
+    public int deleteByDocumentId(Long documentId) {
+        TransactionTemplate batchTransaction = new TransactionTemplate(transactionManager);
+
+        int total = 0;
+        int deleted;
+        do {
+            deleted = batchTransaction.execute(status -> jdbcTemplate.update(DELETE_BATCH_SQL, documentId, deleteBatchSize));
+            total += deleted;
+        } while (deleted == deleteBatchSize);
+
+        log.info("Deleted {} chunks of document ID: {} from vector_store", total, documentId);
+        return total;
+    }
 
-            String chunk = content.substring(start, end).trim();
-            if (!chunk.isEmpty()) {
-                chunks.add(chunk);
-            }
+    /**
+     * Points a document's chunks at another document that shares its content, in the
+     * caller's transaction.
+     */
+    public int reassignDocument(Long fromDocumentId, Long toDocumentId, String filename) {
+        int updated = jdbcTemplate.update(REASSIGN_SQL, toDocumentId, toDocumentId, filename, fromDocumentId);
+        log.info("Moved {} chunks from document ID: {} to document ID: {}", updated, fromDocumentId, toDocumentId);
+        return updated;
+    }
 
-            // Move start forward, accounting for overlap
-            // Ensure we always move forward by at least 1 character
-            int newStart = end - overlap;
-            start = Math.max(newStart, start + 1);
+    private String toJson(Map<String, Object> metadata) {
+        try {
+            return objectMapper.writeValueAsString(metadata);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize chunk metadata", e);
         }
+    }
 
-        return chunks;
+    private Map<String, Object> fromJson(String json) {
+        try {
+            return json == null ? new HashMap<>() : objectMapper.readValue(json, METADATA_TYPE);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to parse chunk metadata", e);
+        }
     }
 }
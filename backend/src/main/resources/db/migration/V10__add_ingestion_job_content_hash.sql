@@ -0,0 +1,2 @@
+-- Recorded when an upload is accepted, before its document row exists
+ALTER TABLE ingestion_jobs ADD COLUMN content_hash VARCHAR(64);
@@ -0,0 +1,4 @@
+-- Lets the orphan sweep find rows without a document directly instead of scanning the table.
+-- The predicate matches OrphanVectorSweeper's, so the index only holds actual orphans
+CREATE INDEX idx_vector_store_orphans ON vector_store(id)
+    WHERE document_id IS NULL AND metadata->>'document_id' IS NOT NULL;
@@ -0,0 +1,21 @@
+-- Track asynchronous document ingestion (extract -> chunk -> embed -> store)
+CREATE TABLE ingestion_jobs (
+    id BIGSERIAL PRIMARY KEY,
+    filename VARCHAR(255) NOT NULL,
+    file_type VARCHAR(50) NOT NULL,
+    file_size BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    document_id BIGINT REFERENCES documents(id) ON DELETE SET NULL,
+    total_chunks INTEGER,
+    stored_chunks INTEGER NOT NULL DEFAULT 0,
+    error_message TEXT,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    completed_at TIMESTAMP
+);
+
+CREATE INDEX idx_ingestion_jobs_status ON ingestion_jobs(status);
+CREATE INDEX idx_ingestion_jobs_document_id ON ingestion_jobs(document_id);
+
+CREATE TRIGGER update_ingestion_jobs_updated_at BEFORE UPDATE ON ingestion_jobs
+    FOR EACH ROW EXECUTE FUNCTION update_updated_at_column();
@@ -0,0 +1,9 @@
+-- Embeddings keyed by SHA-256 of the normalized chunk text and the embedding model,
+-- so identical chunks across uploads are only embedded once
+CREATE TABLE embedding_cache (
+    content_hash CHAR(64) NOT NULL,
+    model VARCHAR(100) NOT NULL,
+    embedding vector(1536) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (content_hash, model)
+);
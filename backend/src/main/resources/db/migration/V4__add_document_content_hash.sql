@@ -0,0 +1,8 @@
+-- SHA-256 of the uploaded bytes, used to recognise re-uploads of the same file
+ALTER TABLE documents ADD COLUMN content_hash VARCHAR(64);
+
+-- Duplicates point at the document whose extracted text and vectors they share
+ALTER TABLE documents ADD COLUMN canonical_document_id BIGINT REFERENCES documents(id) ON DELETE SET NULL;
+
+CREATE INDEX idx_documents_content_hash ON documents(content_hash);
+CREATE INDEX idx_documents_canonical_document_id ON documents(canonical_document_id);
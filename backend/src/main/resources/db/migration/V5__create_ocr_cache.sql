@@ -0,0 +1,9 @@
+-- OCR text keyed by SHA-256 of the image and a description of the OCR setup
+-- (engine version, language, preprocessing), so repeated images skip Tesseract
+CREATE TABLE ocr_cache (
+    image_hash CHAR(64) NOT NULL,
+    config VARCHAR(255) NOT NULL,
+    text TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (image_hash, config)
+);
@@ -0,0 +1,4 @@
+-- Progressive indexing: how far into the document every chunk is already searchable
+ALTER TABLE ingestion_jobs
+    ADD COLUMN indexed_chunks INTEGER NOT NULL DEFAULT 0,
+    ADD COLUMN indexed_through_section INTEGER;
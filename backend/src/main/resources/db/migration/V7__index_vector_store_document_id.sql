@@ -0,0 +1,2 @@
+-- Lets deleting a document's chunks look them up by index instead of scanning vector_store
+CREATE INDEX idx_vector_store_document_id ON vector_store ((metadata->>'document_id'));
@@ -0,0 +1,15 @@
+-- Chunks reference their document as a real column instead of a key inside the JSON metadata
+ALTER TABLE vector_store ADD COLUMN document_id BIGINT;
+
+-- Chunks whose document is already gone stay NULL; the orphan sweep removes them
+UPDATE vector_store v
+SET document_id = d.id
+FROM documents d
+WHERE d.id::text = v.metadata->>'document_id';
+
+ALTER TABLE vector_store
+    ADD CONSTRAINT fk_vector_store_document_id FOREIGN KEY (document_id) REFERENCES documents(id) ON DELETE CASCADE;
+
+-- Replaces the expression index on the metadata key
+DROP INDEX IF EXISTS idx_vector_store_document_id;
+CREATE INDEX idx_vector_store_document_id ON vector_store(document_id);
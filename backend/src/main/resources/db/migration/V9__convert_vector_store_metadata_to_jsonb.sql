@@ -0,0 +1,6 @@
+-- Filters no longer re-parse the metadata text of every row, and a GIN index can serve
+-- containment (@>) and jsonpath (@?, @@) filters. Rewrites the table and its indexes,
+-- holding an exclusive lock until done
+ALTER TABLE vector_store ALTER COLUMN metadata TYPE JSONB USING metadata::jsonb;
+
+CREATE INDEX idx_vector_store_metadata ON vector_store USING gin (metadata jsonb_path_ops);
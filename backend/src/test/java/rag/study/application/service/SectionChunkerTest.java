@@ -0,0 +1,62 @@
+package rag.study.application.service;
+
+import org.junit.jupiter.api.Test;
+import org.xml.sax.helpers.AttributesImpl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SectionChunkerTest {
+
+    @Test
+    void emitsOneChunkPerPage() {
+        List<ChunkingContentHandler.Chunk> chunks = chunkPages("First page text.\n", "Second page text.\n", "Third page.\n");
+
+        assertEquals(List.of(
+            new ChunkingContentHandler.Chunk("First page text.", "page", 1, 1),
+            new ChunkingContentHandler.Chunk("Second page text.", "page", 2, 2),
+            new ChunkingContentHandler.Chunk("Third page.", "page", 3, 3)), chunks);
+    }
+
+    @Test
+    void splitsOversizedPagesWithTheFallback() {
+        String longPage = "word ".repeat(200);
+        List<ChunkingContentHandler.Chunk> chunks = chunkPages("Short page.\n", longPage, "Last page.\n");
+
+        assertEquals(new ChunkingContentHandler.Chunk("Short page.", "page", 1, 1), chunks.get(0));
+        assertEquals(new ChunkingContentHandler.Chunk("Last page.", "page", 3, 3), chunks.get(chunks.size() - 1));
+
+        List<ChunkingContentHandler.Chunk> middle = chunks.subList(1, chunks.size() - 1);
+        assertTrue(middle.size() > 1);
+        for (ChunkingContentHandler.Chunk chunk : middle) {
+            assertEquals(2, chunk.firstSection());
+            assertEquals(2, chunk.lastSection());
+            assertTrue(chunk.text().length() <= 100, () -> "chunk of " + chunk.text().length() + " characters");
+        }
+    }
+
+    @Test
+    void skipsBlankPages() {
+        assertEquals(List.of(
+            new ChunkingContentHandler.Chunk("Page one.", "page", 1, 1),
+            new ChunkingContentHandler.Chunk("Page three.", "page", 3, 3)), chunkPages("Page one.", " \n ", "Page three."));
+    }
+
+    // Each page is wrapped in a div like Tika's PDF output
+    private static List<ChunkingContentHandler.Chunk> chunkPages(String... pages) {
+        List<ChunkingContentHandler.Chunk> chunks = new ArrayList<>();
+        ChunkingContentHandler handler = new ChunkingContentHandler(
+            new SectionChunker(100, new TextChunker(50, 10)), chunks::add);
+        for (String page : pages) {
+            AttributesImpl attributes = new AttributesImpl();
+            attributes.addAttribute("", "class", "class", "CDATA", "page");
+            handler.startElement("", "div", "div", attributes);
+            handler.characters(page.toCharArray(), 0, page.length());
+        }
+        handler.finish();
+        return chunks;
+    }
+}
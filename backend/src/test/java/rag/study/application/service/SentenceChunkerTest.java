@@ -0,0 +1,61 @@
+package rag.study.application.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SentenceChunkerTest {
+
+    @Test
+    void endsChunksAtSentenceEnds() {
+        assertEquals(List.of("First sentence here.", "Second part runs on and on."),
+            chunk(new SentenceChunker(30), "First sentence here. Second part runs on and on."));
+    }
+
+    @Test
+    void prefersParagraphBreaksOverSentenceEnds() {
+        assertEquals(List.of("Intro line. More text", "Next paragraph starts here and goes on"),
+            chunk(new SentenceChunker(40), "Intro line. More text\n\nNext paragraph starts here and goes on"));
+    }
+
+    @Test
+    void fallsBackToWhitespace() {
+        assertEquals(List.of("alpha beta", "gamma delta"), chunk(new SentenceChunker(12), "alpha beta gamma delta"));
+    }
+
+    @Test
+    void keepsAllTextWithoutOverlap() {
+        Random random = new Random(42);
+        for (int round = 0; round < 100; round++) {
+            StringBuilder text = new StringBuilder();
+            int words = random.nextInt(800);
+            for (int i = 0; i < words; i++) {
+                text.append("word").append(i).append(random.nextInt(10) == 0 ? ". " : random.nextInt(20) == 0 ? "\n\n" : " ");
+            }
+
+            List<String> chunks = chunk(new SentenceChunker(300), text.toString());
+
+            for (String chunk : chunks) {
+                assertTrue(chunk.length() <= 300, () -> "chunk of " + chunk.length() + " characters");
+            }
+            assertEquals(withoutWhitespace(text.toString()), withoutWhitespace(String.join("", chunks)), "round " + round);
+        }
+    }
+
+    private static List<String> chunk(SentenceChunker chunker, String text) {
+        List<String> chunks = new ArrayList<>();
+        ChunkingContentHandler handler = new ChunkingContentHandler(chunker, chunk -> chunks.add(chunk.text()));
+        handler.characters(text.toCharArray(), 0, text.length());
+        handler.finish();
+        return chunks;
+    }
+
+    private static String withoutWhitespace(String text) {
+        return text.replaceAll("\\s+", "");
+    }
+}
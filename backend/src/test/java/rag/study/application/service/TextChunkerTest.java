@@ -0,0 +1,115 @@
+package rag.study.application.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextChunkerTest {
+
+    private static final int CHUNK_SIZE = 500;
+    private static final int OVERLAP = 50;
+
+    @Test
+    void matchesSubstringSplitterForArbitrarySaxSplits() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            String text = randomText(random, random.nextInt(5000));
+
+            List<String> chunks = new ArrayList<>();
+            ChunkingContentHandler handler = new ChunkingContentHandler(new TextChunker(CHUNK_SIZE, OVERLAP),
+                chunk -> chunks.add(chunk.text()));
+            char[] chars = text.toCharArray();
+            int offset = 0;
+            while (offset < chars.length) {
+                int length = Math.min(chars.length - offset, 1 + random.nextInt(64));
+                handler.characters(chars, offset, length);
+                offset += length;
+            }
+            handler.finish();
+
+            assertEquals(substringSplit(text), chunks, "round " + round);
+        }
+    }
+
+    @Test
+    void breaksAtTheLastSpaceAndOverlaps() {
+        assertEquals(List.of("aaaa bbbb", "bbb cccc", "ccc dddd"), chunk(new TextChunker(10, 3), "aaaa bbbb cccc dddd"));
+    }
+
+    @Test
+    void cutsWordsLongerThanTheChunkSize() {
+        assertEquals(List.of("abcd", "defg", "ghij"), chunk(new TextChunker(4, 1), "abcdefghij"));
+    }
+
+    @Test
+    void emitsShortTextAsOneTrimmedChunk() {
+        assertEquals(List.of("short text"), chunk(new TextChunker(CHUNK_SIZE, OVERLAP), "  short text \n"));
+    }
+
+    @Test
+    void emitsNothingForBlankText() {
+        assertTrue(chunk(new TextChunker(CHUNK_SIZE, OVERLAP), " \n\t ").isEmpty());
+        assertTrue(chunk(new TextChunker(CHUNK_SIZE, OVERLAP), "").isEmpty());
+    }
+
+    @Test
+    void chunksNeverExceedTheChunkSize() {
+        String text = randomText(new Random(7), 20_000);
+        for (String chunk : chunk(new TextChunker(CHUNK_SIZE, OVERLAP), text)) {
+            assertTrue(chunk.length() <= CHUNK_SIZE, () -> "chunk of " + chunk.length() + " characters");
+        }
+    }
+
+    private static List<String> chunk(Chunker chunker, String text) {
+        List<String> chunks = new ArrayList<>();
+        ChunkingContentHandler handler = new ChunkingContentHandler(chunker, chunk -> chunks.add(chunk.text()));
+        handler.characters(text.toCharArray(), 0, text.length());
+        handler.finish();
+        return chunks;
+    }
+
+    // Words with the occasional sentence end, line break or blank line, like Tika output
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            int wordLength = 1 + random.nextInt(12);
+            for (int i = 0; i < wordLength; i++) {
+                text.append((char) ('a' + random.nextInt(26)));
+            }
+            int separator = random.nextInt(20);
+            text.append(separator == 0 ? ". " : separator == 1 ? "\n" : separator == 2 ? "\n\n" : " ");
+        }
+        return text.substring(0, length);
+    }
+
+    // The substring-based splitter streaming extraction replaced, without the
+    // shrinking copies of the tail it used to emit after reaching the end
+    private static List<String> substringSplit(String content) {
+        List<String> chunks = new ArrayList<>();
+        int start = 0;
+        while (start < content.length()) {
+            int end = Math.min(start + CHUNK_SIZE, content.length());
+            if (end < content.length()) {
+                int lastSpace = content.lastIndexOf(' ', end);
+                if (lastSpace > start) {
+                    end = lastSpace;
+                }
+            }
+
+            String chunk = content.substring(start, end).trim();
+            if (!chunk.isEmpty()) {
+                chunks.add(chunk);
+            }
+            if (end >= content.length()) {
+                break;
+            }
+            start = Math.max(end - OVERLAP, start + 1);
+        }
+        return chunks;
+    }
+}
@@ -0,0 +1,157 @@
+package rag.study.application.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenChunkerTest {
+
+    private static final TokenCounter TOKEN_COUNTER = new TokenCounter("cl100k_base");
+
+    // Distinct words, so a word's number identifies its position in the text
+    private static final String NUMBERED_WORDS =
+        IntStream.range(0, 500).mapToObj(i -> "w" + i).collect(Collectors.joining(" "));
+
+    @Test
+    void chunksStayWithinTheTokenBudget() {
+        Random random = new Random(42);
+        for (int round = 0; round < 500; round++) {
+            int maxTokens = 1 + random.nextInt(100);
+            String text = randomText(random, random.nextInt(5000));
+            for (String chunk : chunk(new TokenChunker(TOKEN_COUNTER, maxTokens, maxTokens / 8), text, random)) {
+                int tokens = TOKEN_COUNTER.count(chunk);
+                assertTrue(tokens <= maxTokens, () -> "round with budget " + maxTokens + ": chunk of " + tokens
+                    + " tokens: " + chunk);
+            }
+        }
+    }
+
+    @Test
+    void fillsEachChunkUpToTheBudget() {
+        List<String> chunks = chunk(new TokenChunker(TOKEN_COUNTER, 40, 10), NUMBERED_WORDS, new Random(1));
+
+        for (int i = 0; i < chunks.size() - 1; i++) {
+            String chunk = chunks.get(i);
+            String extended = chunk + " w" + (lastWord(chunk) + 1);
+            assertTrue(TOKEN_COUNTER.count(chunk) <= 40);
+            assertTrue(TOKEN_COUNTER.count(extended) > 40, "chunk " + i + " could take another word");
+        }
+    }
+
+    @Test
+    void keepsTextOfExactlyTheBudgetInOneChunk() {
+        String text = NUMBERED_WORDS;
+        while (TOKEN_COUNTER.count(text) > 64) {
+            text = text.substring(0, text.lastIndexOf(' '));
+        }
+        int budget = TOKEN_COUNTER.count(text);
+
+        assertEquals(List.of(text), chunk(new TokenChunker(TOKEN_COUNTER, budget, 0), text, new Random(1)));
+        assertEquals(2, chunk(new TokenChunker(TOKEN_COUNTER, budget - 1, 0), text, new Random(1)).size());
+    }
+
+    @Test
+    void doesNotDependOnHowTextIsSplitIntoSaxEvents() {
+        Random random = new Random(7);
+        for (int round = 0; round < 50; round++) {
+            String text = randomText(random, random.nextInt(5000));
+
+            assertEquals(chunk(new TokenChunker(TOKEN_COUNTER, 64, 8), text, new Random(round)),
+                chunk(new TokenChunker(TOKEN_COUNTER, 64, 8), text, new Random(-round)), "round " + round);
+        }
+    }
+
+    @Test
+    void consecutiveChunksOverlapByWholeWords() {
+        List<String> chunks = chunk(new TokenChunker(TOKEN_COUNTER, 40, 10), NUMBERED_WORDS, new Random(1));
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(0, firstWord(chunks.get(0)));
+        assertEquals(499, lastWord(chunks.get(chunks.size() - 1)));
+        for (int i = 1; i < chunks.size(); i++) {
+            String previous = chunks.get(i - 1);
+            String next = chunks.get(i);
+            assertTrue(firstWord(next) > firstWord(previous), "chunk " + i + " does not move forward");
+            assertTrue(firstWord(next) <= lastWord(previous), "chunk " + i + " does not overlap");
+
+            String overlap = previous.substring(previous.indexOf("w" + firstWord(next) + " "));
+            assertTrue(TOKEN_COUNTER.count(overlap) <= 10, () -> "overlap of " + TOKEN_COUNTER.count(overlap) + " tokens");
+        }
+    }
+
+    @Test
+    void cutsWordsOverTheTokenBudget() {
+        Random random = new Random(3);
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            word.append((char) ('a' + random.nextInt(26)));
+        }
+
+        List<String> chunks = chunk(new TokenChunker(TOKEN_COUNTER, 20, 5), word.toString(), random);
+
+        assertTrue(chunks.size() > 1);
+        assertEquals(word.toString(), String.join("", chunks));
+        for (String chunk : chunks) {
+            assertTrue(TOKEN_COUNTER.count(chunk) <= 20);
+        }
+    }
+
+    @Test
+    void emitsShortTextAsOneChunk() {
+        assertEquals(List.of("a few words"), chunk(new TokenChunker(TOKEN_COUNTER, 64, 8), " a few words\n", new Random(1)));
+    }
+
+    @Test
+    void rejectsOverlapThatLeavesNoRoomToAdvance() {
+        assertThrows(IllegalArgumentException.class, () -> new TokenChunker(TOKEN_COUNTER, 10, 10));
+        assertThrows(IllegalArgumentException.class, () -> new TokenChunker(TOKEN_COUNTER, 0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new TokenChunker(TOKEN_COUNTER, 10, -1));
+    }
+
+    // Feeds the text in SAX calls of random length, the way Tika delivers it
+    private static List<String> chunk(TokenChunker chunker, String text, Random random) {
+        List<String> chunks = new ArrayList<>();
+        ChunkingContentHandler handler = new ChunkingContentHandler(chunker, chunk -> chunks.add(chunk.text()));
+        char[] chars = text.toCharArray();
+        int offset = 0;
+        while (offset < chars.length) {
+            int length = Math.min(chars.length - offset, 1 + random.nextInt(64));
+            handler.characters(chars, offset, length);
+            offset += length;
+        }
+        handler.finish();
+        return chunks;
+    }
+
+    // Mixed-case words with digits and punctuation, the occasional line break or blank line
+    private static String randomText(Random random, int length) {
+        String alphabet = "abcdefghijklmnopqrstuvwxyzABCXYZ0123456789,;()-'éß";
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            int wordLength = 1 + random.nextInt(12);
+            for (int i = 0; i < wordLength; i++) {
+                text.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            int separator = random.nextInt(20);
+            text.append(separator == 0 ? ". " : separator == 1 ? "\n" : separator == 2 ? "\n\n" : " ");
+        }
+        return text.substring(0, length);
+    }
+
+    private static int firstWord(String chunk) {
+        return Integer.parseInt(chunk.split(" ")[0].substring(1));
+    }
+
+    private static int lastWord(String chunk) {
+        String[] words = chunk.split(" ");
+        return Integer.parseInt(words[words.length - 1].substring(1));
+    }
+}
@@ -1,5 +1,5 @@
 import axios from 'axios';
-import type {StudyDocument, DocumentUploadResponse, ChatRequest, ChatResponse} from './types';
+import type {StudyDocument, DocumentUploadResponse, IngestionJob, ChatRequest, ChatResponse} from './types';
 
 const API_BASE_URL = 'http://localhost:8080/api';
 
@@ -23,6 +23,11 @@ export const documentApi = {
     return response.data;
   },
 
+  getJob: async (jobId: number): Promise<IngestionJob> => {
+    const response = await api.get<IngestionJob>(`/documents/jobs/${jobId}`);
+    return response.data;
+  },
+
   getAll: async (): Promise<StudyDocument[]> => {
     const response = await api.get<StudyDocument[]>('/documents');
     return response.data;
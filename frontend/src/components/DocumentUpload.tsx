@@ -1,5 +1,8 @@
 import React, { useState } from 'react';
 import { documentApi } from '../api';
+import type { IngestionJob } from '../types';
+
+const JOB_POLL_INTERVAL_MS = 1500;
 
 interface DocumentUploadProps {
   onUploadSuccess: () => void;
@@ -17,6 +20,21 @@ export default function DocumentUpload({ onUploadSuccess }: DocumentUploadProps)
     }
   };
 
+  const waitForJob = async (jobId: number): Promise<IngestionJob> => {
+    for (;;) {
+      const job = await documentApi.getJob(jobId);
+      if (job.status === 'COMPLETED' || job.status === 'FAILED') {
+        return job;
+      }
+      if (job.status === 'PARTIALLY_INDEXED') {
+        // The start of the document can already be asked about
+        const through = job.indexedThroughSection !== null ? ` (through page/slide ${job.indexedThroughSection})` : '';
+        setMessage({ type: 'success', text: `Processing document... first ${job.indexedChunks} chunks are searchable${through}` });
+      }
+      await new Promise(resolve => setTimeout(resolve, JOB_POLL_INTERVAL_MS));
+    }
+  };
+
   const handleUpload = async () => {
     if (!file) {
       setMessage({ type: 'error', text: 'Please select a file first' });
@@ -29,7 +47,20 @@ export default function DocumentUpload({ onUploadSuccess }: DocumentUploadProps)
     try {
       const response = await documentApi.upload(file);
 
-      if (response.status === 'success') {
+      if (response.status === 'queued' && response.jobId !== null) {
+        setMessage({ type: 'success', text: 'Processing document...' });
+        const job = await waitForJob(response.jobId);
+        if (job.status === 'FAILED') {
+          setMessage({ type: 'error', text: job.errorMessage || 'Failed to process document.' });
+          return;
+        }
+        setMessage({ type: 'success', text: 'File uploaded and processed successfully' });
+        setFile(null);
+        // Reset file input
+        const fileInput = document.getElementById('file-upload') as HTMLInputElement;
+        if (fileInput) fileInput.value = '';
+        onUploadSuccess();
+      } else if (response.status === 'success') {
         setMessage({ type: 'success', text: response.message });
         setFile(null);
         // Reset file input
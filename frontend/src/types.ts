@@ -10,6 +10,7 @@ export interface StudyDocument {
 
 export interface DocumentUploadResponse {
   id: number | null;
+  jobId: number | null;
   filename: string;
   fileType: string | null;
   fileSize: number;
@@ -17,6 +18,20 @@ export interface DocumentUploadResponse {
   message: string;
 }
 
+export interface IngestionJob {
+  jobId: number;
+  documentId: number | null;
+  filename: string;
+  status: 'QUEUED' | 'EXTRACTING' | 'EMBEDDING' | 'PARTIALLY_INDEXED' | 'COMPLETED' | 'FAILED';
+  totalChunks: number | null;
+  storedChunks: number;
+  indexedChunks: number;
+  indexedThroughSection: number | null;
+  errorMessage: string | null;
+  createdAt: string;
+  completedAt: string | null;
+}
+
 export interface ChatRequest {
   question: string;
 }